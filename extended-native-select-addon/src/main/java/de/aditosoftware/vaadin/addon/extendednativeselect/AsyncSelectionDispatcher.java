@@ -0,0 +1,137 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect;
+
+import com.vaadin.event.selection.SingleSelectionEvent;
+import com.vaadin.event.selection.SingleSelectionListener;
+import com.vaadin.server.ErrorEvent;
+import com.vaadin.server.ErrorHandler;
+import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.SerializableFunction;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A selection listener, which processes the selection on the selection
+ * executor of an {@link ExtendedNativeSelect} instead of the request thread.
+ * The result is applied through {@link UI#access(com.vaadin.server.Command)}.
+ * Every selection supersedes the previous ones, so the result of a superseded
+ * selection is dropped and results are never applied out of order. If the
+ * executor rejects a selection, the selection is dropped and the rejection is
+ * reported to the error handler of the select.
+ *
+ * @param <T> The type of the items.
+ * @param <R> The type of the result.
+ */
+class AsyncSelectionDispatcher<T, R> implements SingleSelectionListener<T> {
+  // Statics.
+  private static final Logger LOGGER = Logger.getLogger(AsyncSelectionDispatcher.class.getName());
+
+  private final ExtendedNativeSelect<T> select;
+  private final SerializableFunction<Optional<T>, R> task;
+  private final SerializableConsumer<R> callback;
+
+  // The generation of the latest selection.
+  private final AtomicLong generation = new AtomicLong();
+  private transient boolean missingExecutorLogged;
+
+  AsyncSelectionDispatcher (ExtendedNativeSelect<T> select, SerializableFunction<Optional<T>, R> task,
+                            SerializableConsumer<R> callback) {
+    this.select = select;
+    this.task = task;
+    this.callback = callback;
+  }
+
+  @Override
+  public void selectionChange (SingleSelectionEvent<T> event) {
+    // The selection is taken while the session is locked.
+    Optional<T> selection = event.getSelectedItem();
+    long current = generation.incrementAndGet();
+
+    Executor executor = select.getSelectionExecutor();
+    UI ui = select.getUI();
+
+    // Without an executor or UI, the selection is processed synchronously.
+    if (executor == null || ui == null) {
+      if (executor == null && select.isSelectionExecutorLost())
+        logMissingExecutor();
+
+      callback.accept(task.apply(selection));
+      return;
+    }
+
+    try {
+      executor.execute(() -> process(ui, selection, current));
+    } catch (RejectedExecutionException e) {
+      // The selection is dropped, as processing it synchronously would block
+      // the session exactly when the executor is saturated.
+      reportError(e);
+    }
+  }
+
+  /**
+   * Will process the given selection and apply the result, if the selection
+   * has not been superseded in the meantime. Exceptions of the task are
+   * delivered to the error handler of the session.
+   *
+   * @param ui        The UI to apply the result to.
+   * @param selection The selection to process.
+   * @param current   The generation of the selection.
+   */
+  private void process (UI ui, Optional<T> selection, long current) {
+    if (generation.get() != current)
+      return;
+
+    try {
+      R result = task.apply(selection);
+
+      ui.access(() -> {
+        if (generation.get() == current)
+          callback.accept(result);
+      });
+    } catch (UIDetachedException ignored) {
+      // The UI has been detached in the meantime, so there is nothing to apply.
+    } catch (RuntimeException e) {
+      try {
+        ui.access(() -> {
+          throw e;
+        });
+      } catch (UIDetachedException ignored) {
+        // The UI has been detached in the meantime, so there is nothing to report to.
+      }
+    }
+  }
+
+  /**
+   * Will report the given exception to the error handler of the select. This
+   * has to be called while the session is locked.
+   *
+   * @param e The exception to report.
+   */
+  private void reportError (RuntimeException e) {
+    ErrorHandler errorHandler = ErrorEvent.findErrorHandler(select);
+
+    if (errorHandler != null)
+      errorHandler.error(new ErrorEvent(e));
+    else
+      LOGGER.log(Level.SEVERE, "The selection executor rejected a selection", e);
+  }
+
+  /**
+   * Will log once per listener, that the selection is processed synchronously
+   * because the transient executor has been lost through serialization.
+   */
+  private void logMissingExecutor () {
+    if (missingExecutorLogged)
+      return;
+
+    missingExecutorLogged = true;
+    LOGGER.warning("The selection executor of the select has not been set again after "
+        + "deserialization, so asynchronous selection listeners are processed synchronously");
+  }
+}
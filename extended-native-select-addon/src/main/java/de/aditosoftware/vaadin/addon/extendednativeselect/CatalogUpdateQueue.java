@@ -0,0 +1,303 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect;
+
+import com.vaadin.shared.Registration;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects changes of a {@link SortedCatalog} from any thread and applies
+ * them in batches. The changes are queued without locking and coalesced per
+ * item within the configured time window. Afterwards, they are applied to the
+ * catalog once and all subscribed {@link ExtendedNativeSelect}s are refreshed
+ * with a single {@link UI#access(com.vaadin.server.Command)} per UI, which
+ * results in a single push per UI.
+ * <p>
+ * Changes which are applied through this queue do not notify the listeners of
+ * the data providers of the catalog. Therefore every select which uses the
+ * catalog should be subscribed.
+ * <p>
+ * Only one flush is scheduled at a time, so the batches are applied in the
+ * order of their changes. Failures while flushing are logged and do not stop
+ * later flushes.
+ *
+ * @param <T> The type of the items.
+ */
+public class CatalogUpdateQueue<T> {
+  // Statics.
+  private static final Logger LOGGER = Logger.getLogger(CatalogUpdateQueue.class.getName());
+
+  private final SortedCatalog<T> catalog;
+  private final ScheduledExecutorService scheduler;
+  private final long window;
+  private final TimeUnit unit;
+
+  private final Queue<PendingChange<T>> pendingChanges = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final Set<ExtendedNativeSelect<T>> subscribers = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Creates a new queue for the given catalog.
+   *
+   * @param catalog   The catalog to apply the changes to.
+   * @param scheduler The scheduler which is used to apply the changes. The
+   *                  caller is responsible for shutting it down.
+   * @param window    The time window in which changes are coalesced.
+   * @param unit      The unit of the time window.
+   */
+  public CatalogUpdateQueue (SortedCatalog<T> catalog, ScheduledExecutorService scheduler,
+                             long window, TimeUnit unit) {
+    this.catalog = Objects.requireNonNull(catalog);
+    this.scheduler = Objects.requireNonNull(scheduler);
+    this.window = window;
+    this.unit = Objects.requireNonNull(unit);
+  }
+
+  /**
+   * Will subscribe the given select, so it will be refreshed after changes
+   * have been applied. The select is only held by this queue while it is
+   * attached, so detached selects can be garbage collected. A select which is
+   * attached again will be refreshed again.
+   * <p>
+   * The subscription does not serialize this queue with the select. After the
+   * session has been deserialized (e.g. by session persistence or
+   * replication), the select has to be subscribed again.
+   *
+   * @param select The select to subscribe.
+   * @return The registration, which allows to remove the subscription.
+   */
+  public Registration subscribe (ExtendedNativeSelect<T> select) {
+    Subscription<T> subscription = new Subscription<>(this, Objects.requireNonNull(select));
+
+    if (select.isAttached())
+      subscribers.add(select);
+
+    return subscription::remove;
+  }
+
+  /**
+   * Will queue the addition of the given item. If the item is already part of
+   * the catalog, it will be refreshed instead. This can be called from any
+   * thread.
+   *
+   * @param item The item to add.
+   */
+  public void addItem (T item) {
+    enqueue(item, SortedCatalog.Change.ADD);
+  }
+
+  /**
+   * Will queue the removal of the given item. This can be called from any
+   * thread.
+   *
+   * @param item The item to remove.
+   */
+  public void removeItem (T item) {
+    enqueue(item, SortedCatalog.Change.REMOVE);
+  }
+
+  /**
+   * Will queue the refresh of the given item. This can be called from any
+   * thread.
+   *
+   * @param item The item to refresh.
+   */
+  public void refreshItem (T item) {
+    enqueue(item, SortedCatalog.Change.REFRESH);
+  }
+
+  /**
+   * Will queue the given change and schedule a flush.
+   */
+  private void enqueue (T item, SortedCatalog.Change change) {
+    pendingChanges.add(new PendingChange<>(Objects.requireNonNull(item), change));
+    scheduleFlush();
+  }
+
+  /**
+   * Will schedule a flush, if there is no flush scheduled or running yet.
+   */
+  private void scheduleFlush () {
+    if (!flushScheduled.compareAndSet(false, true))
+      return;
+
+    try {
+      scheduler.schedule(this::flush, window, unit);
+    } catch (RejectedExecutionException e) {
+      flushScheduled.set(false);
+      throw e;
+    }
+  }
+
+  /**
+   * Will apply all pending changes and schedule the next flush afterwards, if
+   * changes have been queued in the meantime. The flag is only reset after
+   * the flush has completed, so flushes never overlap. The scheduled future
+   * is not observed by anyone, so failures are logged here.
+   */
+  private void flush () {
+    try {
+      applyPendingChanges();
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.SEVERE, "Failed to apply the changes of the catalog", e);
+    } finally {
+      flushScheduled.set(false);
+
+      if (!pendingChanges.isEmpty()) {
+        try {
+          scheduleFlush();
+        } catch (RejectedExecutionException e) {
+          LOGGER.log(Level.WARNING, "Failed to schedule the next flush of the catalog changes", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Will apply all pending changes to the catalog and refresh the subscribed
+   * selects.
+   */
+  private void applyPendingChanges () {
+    Map<T, SortedCatalog.Change> changes = new LinkedHashMap<>();
+    PendingChange<T> pendingChange;
+    while ((pendingChange = pendingChanges.poll()) != null) {
+      // Remove the previous change first, so the latest instance of the item
+      // is kept as key and applied to the catalog.
+      SortedCatalog.Change previous = changes.remove(pendingChange.item);
+      changes.put(pendingChange.item,
+          previous == null ? pendingChange.change : coalesce(previous, pendingChange.change));
+    }
+
+    if (changes.isEmpty())
+      return;
+
+    SortedCatalog.Result result = catalog.applyChanges(changes);
+    if (result == SortedCatalog.Result.UNCHANGED)
+      return;
+
+    // Without a structural change, only the refreshed items are sent again
+    // instead of resetting the selects.
+    Collection<T> refreshedItems = result == SortedCatalog.Result.REFRESHED
+        ? new ArrayList<>(changes.keySet()) : null;
+
+    // Group the attached subscribers by their UI.
+    Map<UI, List<ExtendedNativeSelect<T>>> selectsByUI = new IdentityHashMap<>();
+    for (ExtendedNativeSelect<T> select : subscribers) {
+      UI ui = select.getUI();
+      if (ui != null)
+        selectsByUI.computeIfAbsent(ui, key -> new ArrayList<>()).add(select);
+    }
+
+    selectsByUI.forEach((ui, selects) -> refresh(ui, selects, refreshedItems));
+  }
+
+  /**
+   * Will refresh the given selects of the given UI within a single access.
+   *
+   * @param ui             The UI of the selects.
+   * @param selects        The selects to refresh.
+   * @param refreshedItems The refreshed items or null, if the selects have
+   *                       to be reset.
+   */
+  private void refresh (UI ui, List<ExtendedNativeSelect<T>> selects, Collection<T> refreshedItems) {
+    // A failure for one UI must not prevent the refresh of the other UIs.
+    try {
+      ui.access(() -> {
+        for (ExtendedNativeSelect<T> select : selects) {
+          // The select might have been moved or detached in the meantime.
+          if (select.getUI() != ui)
+            continue;
+
+          if (refreshedItems != null)
+            select.refreshCatalogItems(refreshedItems);
+          else
+            select.refreshCatalogItems();
+        }
+
+        if (ui.getPushConfiguration().getPushMode() == PushMode.MANUAL)
+          ui.push();
+      });
+    } catch (UIDetachedException ignored) {
+      // The UI has been detached in the meantime, so there is nothing to refresh.
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Failed to refresh the selects of a UI", e);
+    }
+  }
+
+  /**
+   * Will coalesce two changes of the same item into one. The later change
+   * wins, except for a refresh, which does not change a previous addition or
+   * removal.
+   */
+  private static SortedCatalog.Change coalesce (SortedCatalog.Change previous, SortedCatalog.Change next) {
+    return next == SortedCatalog.Change.REFRESH ? previous : next;
+  }
+
+  /**
+   * The attach and detach listeners of a subscribed select. The queue is not
+   * serialized with the select, so the subscription does nothing after
+   * deserialization.
+   */
+  private static final class Subscription<T> implements Serializable {
+    private final ExtendedNativeSelect<T> select;
+    private final Registration attachRegistration;
+    private final Registration detachRegistration;
+    private transient CatalogUpdateQueue<T> queue;
+
+    private Subscription (CatalogUpdateQueue<T> queue, ExtendedNativeSelect<T> select) {
+      this.queue = queue;
+      this.select = select;
+      attachRegistration = select.addAttachListener(event -> attached());
+      detachRegistration = select.addDetachListener(event -> detached());
+    }
+
+    private void attached () {
+      if (queue != null)
+        queue.subscribers.add(select);
+    }
+
+    private void detached () {
+      if (queue != null)
+        queue.subscribers.remove(select);
+    }
+
+    private void remove () {
+      attachRegistration.remove();
+      detachRegistration.remove();
+      detached();
+      queue = null;
+    }
+  }
+
+  /**
+   * A change which has been queued but not applied yet.
+   */
+  private static final class PendingChange<T> {
+    private final T item;
+    private final SortedCatalog.Change change;
+
+    private PendingChange (T item, SortedCatalog.Change change) {
+      this.item = item;
+      this.change = change;
+    }
+  }
+}
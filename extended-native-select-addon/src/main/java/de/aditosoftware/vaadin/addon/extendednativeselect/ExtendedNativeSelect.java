@@ -1,13 +1,24 @@
 package de.aditosoftware.vaadin.addon.extendednativeselect;
 
 import com.vaadin.data.HasDataProvider;
+import com.vaadin.data.provider.DataChangeEvent;
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.data.provider.DataGenerator;
 import com.vaadin.data.provider.DataProvider;
 import com.vaadin.event.FieldEvents;
+import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.SerializableFunction;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.ui.AbstractSingleSelect;
 import com.vaadin.ui.ItemCaptionGenerator;
 import de.aditosoftware.vaadin.addon.extendednativeselect.client.ExtendedNativeSelectState;
+import elemental.json.JsonObject;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 
 /**
  * A native select implementation which supports placeholders and empty selections.
@@ -15,15 +26,36 @@ import de.aditosoftware.vaadin.addon.extendednativeselect.client.ExtendedNativeS
 public class ExtendedNativeSelect<T>
     extends AbstractSingleSelect<T>
     implements FieldEvents.FocusNotifier, FieldEvents.BlurNotifier, HasDataProvider<T> {
+  private SortedCatalog<T> catalog;
+  private Locale catalogLocale;
+  private transient Executor selectionExecutor;
+  private boolean selectionExecutorSet;
+  private Registration dataProviderListenerRegistration;
+
   public ExtendedNativeSelect () {
     registerRpc(new FieldEvents.FocusAndBlurServerRpcDecorator(this, this::fireEvent));
-    addDataGenerator((item, json) -> {
-      String caption = getItemCaptionGenerator().apply(item);
-      if (caption == null)
-        caption = "";
-      json.put(DataCommunicatorConstants.DATA, caption);
+    addDataGenerator(new DataGenerator<T>() {
+      @Override
+      public void generateData (T item, JsonObject json) {
+        String caption = getItemCaptionGenerator().apply(item);
+        if (caption == null)
+          caption = "";
+        json.put(DataCommunicatorConstants.DATA, caption);
+      }
+
+      @Override
+      public void refreshData (T item) {
+        // The caption of the selected item has to be updated as well, as the
+        // client does not necessarily know the refreshed row.
+        if (isSelected(item))
+          updateSelectedItemCaption(item);
+      }
     });
 
+    // The options are only pushed when the client requests them. The selected
+    // item is delivered directly in the state instead.
+    getDataCommunicator().setMinPushSize(0);
+
     setItemCaptionGenerator(String::valueOf);
   }
 
@@ -42,6 +74,13 @@ public class ExtendedNativeSelect<T>
   @Override
   public void setItemCaptionGenerator (ItemCaptionGenerator<T> itemCaptionGenerator) {
     super.setItemCaptionGenerator(itemCaptionGenerator);
+    updateSelectedItemCaption(getSelectedItem().orElse(null));
+  }
+
+  @Override
+  protected void updateSelectedItemState (T value) {
+    super.updateSelectedItemState(value);
+    updateSelectedItemCaption(value);
   }
 
   @Override
@@ -61,9 +100,117 @@ public class ExtendedNativeSelect<T>
 
   @Override
   public void setDataProvider (DataProvider<T, ?> dataProvider) {
+    catalog = null;
+    catalogLocale = null;
     internalSetDataProvider(dataProvider);
   }
 
+  @Override
+  public void attach () {
+    super.attach();
+    addDataProviderListener();
+
+    // The locale might have changed by attaching the component.
+    if (catalog != null)
+      updateCatalogDataProvider();
+  }
+
+  @Override
+  public void detach () {
+    removeDataProviderListener();
+    super.detach();
+  }
+
+  @Override
+  protected void internalSetDataProvider (DataProvider<T, ?> dataProvider) {
+    super.internalSetDataProvider(dataProvider);
+
+    if (isAttached())
+      addDataProviderListener();
+  }
+
+  @Override
+  public void setLocale (Locale locale) {
+    super.setLocale(locale);
+
+    if (catalog != null)
+      updateCatalogDataProvider();
+  }
+
+  /**
+   * Will use the given {@link SortedCatalog} for the items of this component.
+   * The items will be sorted by their caption for the locale of this component
+   * and the caption generator of the catalog will be used. Setting another
+   * data provider will remove the catalog again.
+   *
+   * @param catalog The catalog to use.
+   */
+  public void setCatalog (SortedCatalog<T> catalog) {
+    setItemCaptionGenerator(catalog.getItemCaptionGenerator());
+    this.catalog = catalog;
+    catalogLocale = null;
+    updateCatalogDataProvider();
+  }
+
+  /**
+   * Will return the current {@link SortedCatalog} of this component.
+   *
+   * @return The current catalog or null if a data provider is used.
+   */
+  public SortedCatalog<T> getCatalog () {
+    return catalog;
+  }
+
+  /**
+   * Will set the executor, on which the asynchronous selection listeners are
+   * processed (e.g. a bounded pool or a virtual thread executor). If no
+   * executor is set, asynchronous selection listeners are processed
+   * synchronously.
+   * <p>
+   * The executor is not serialized with the component. After the session has
+   * been deserialized (e.g. by session persistence or replication), the
+   * executor has to be set again. Until then, the asynchronous selection
+   * listeners are processed synchronously and a warning is logged.
+   *
+   * @param selectionExecutor The executor to use or null.
+   * @see #addAsyncSelectionListener(SerializableFunction, SerializableConsumer)
+   */
+  public void setSelectionExecutor (Executor selectionExecutor) {
+    this.selectionExecutor = selectionExecutor;
+    selectionExecutorSet = selectionExecutor != null;
+  }
+
+  /**
+   * Will return the executor, on which the asynchronous selection listeners
+   * are processed.
+   *
+   * @return The executor or null if none is set.
+   */
+  public Executor getSelectionExecutor () {
+    return selectionExecutor;
+  }
+
+  /**
+   * Will add a selection listener, which processes the selection without
+   * holding the session lock. The task is called with the new selection on
+   * the selection executor and its result is handed to the callback within
+   * {@link com.vaadin.ui.UI#access(com.vaadin.server.Command)}. If the
+   * selection changes again before the result has been applied, the result
+   * is dropped, so only the result of the latest selection is applied.
+   * <p>
+   * The task must not access any components, as it is called without the
+   * session lock.
+   *
+   * @param task     The task which processes the selection.
+   * @param callback The callback which applies the result of the task.
+   * @param <R>      The type of the result.
+   * @return The registration for the listener, which allows to remove it.
+   */
+  public <R> Registration addAsyncSelectionListener (SerializableFunction<Optional<T>, R> task,
+                                                     SerializableConsumer<R> callback) {
+    return addSelectionListener(new AsyncSelectionDispatcher<>(this, task, callback));
+  }
+
   /**
    * Will set the placeholder for this component.
    *
@@ -99,4 +246,110 @@ public class ExtendedNativeSelect<T>
   public boolean isEmptySelectionAllowed () {
     return getState(false).emptySelectionAllowed;
   }
+
+  /**
+   * Will refresh all items and the caption of the selected item after the
+   * current catalog has been changed. The caption is taken from the current
+   * instance of the selected item in the catalog, as the refresh replaces
+   * the instance. This has to be called while the session is locked.
+   */
+  void refreshCatalogItems () {
+    getDataCommunicator().reset();
+
+    T selectedItem = getSelectedItem().orElse(null);
+    if (selectedItem != null && catalog != null)
+      selectedItem = catalog.getCurrentItem(selectedItem);
+    updateSelectedItemCaption(selectedItem);
+  }
+
+  /**
+   * Will refresh the given items after they have been refreshed in the
+   * current catalog without changing its order. In contrast to a reset, only
+   * the given items are sent to the client again, and only if the client
+   * knows them already. This has to be called while the session is locked.
+   *
+   * @param items The refreshed items.
+   */
+  void refreshCatalogItems (Collection<T> items) {
+    DataCommunicator<T> dataCommunicator = getDataCommunicator();
+
+    // The same as the DataCommunicator does for a DataRefreshEvent.
+    for (T item : items) {
+      dataCommunicator.getKeyMapper().refresh(item);
+      if (isSelected(item))
+        updateSelectedItemCaption(item);
+      dataCommunicator.refresh(item);
+    }
+  }
+
+  /**
+   * Will return if an executor has been set, which has been lost through
+   * serialization.
+   *
+   * @return If the executor has been lost.
+   */
+  boolean isSelectionExecutorLost () {
+    return selectionExecutorSet && selectionExecutor == null;
+  }
+
+  /**
+   * Will set the data provider of the current catalog for the current locale.
+   * If the locale did not change, the current data provider is kept.
+   */
+  private void updateCatalogDataProvider () {
+    Locale locale = getLocale() != null ? getLocale() : Locale.getDefault();
+
+    if (locale.equals(catalogLocale))
+      return;
+
+    catalogLocale = locale;
+    internalSetDataProvider(catalog.getDataProvider(locale));
+  }
+
+  /**
+   * Will add a listener to the current data provider, which updates the
+   * caption of the selected item when all items are refreshed. A previous
+   * listener will be removed. No listener is added for a catalog, as the
+   * {@link CatalogUpdateQueue} refreshes the caption itself.
+   */
+  private void addDataProviderListener () {
+    removeDataProviderListener();
+
+    if (catalog != null)
+      return;
+
+    dataProviderListenerRegistration = getDataProvider().addDataProviderListener(event -> {
+      // Single refreshed items are handled by the data generator.
+      if (!(event instanceof DataChangeEvent.DataRefreshEvent))
+        updateSelectedItemCaption(getSelectedItem().orElse(null));
+    });
+  }
+
+  /**
+   * Will remove the listener from the current data provider, if there is any.
+   */
+  private void removeDataProviderListener () {
+    if (dataProviderListenerRegistration != null) {
+      dataProviderListenerRegistration.remove();
+      dataProviderListenerRegistration = null;
+    }
+  }
+
+  /**
+   * Will update the caption of the selected item in the state, so the client
+   * is able to render the selected item without loading all options.
+   *
+   * @param value The selected item. May be null.
+   */
+  private void updateSelectedItemCaption (T value) {
+    String caption = null;
+
+    if (value != null) {
+      caption = getItemCaptionGenerator().apply(value);
+      if (caption == null)
+        caption = "";
+    }
+
+    getState().selectedItemCaption = caption;
+  }
 }
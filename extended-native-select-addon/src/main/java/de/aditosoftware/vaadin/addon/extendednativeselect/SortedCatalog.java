@@ -0,0 +1,270 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect;
+
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.ui.ItemCaptionGenerator;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A catalog of items, which provides views on the items sorted by their
+ * caption for a specific {@link Locale}. The collation keys of the captions
+ * are computed once per locale and the sorted order is kept up to date
+ * incrementally when items are added, removed or refreshed. Fetching a range
+ * from the views is therefore just a range copy instead of a sort.
+ * <p>
+ * A catalog is thread-safe and is meant to be shared between sessions.
+ * Therefore the catalog can not be modified directly, as the components of
+ * other sessions must not be refreshed without their session lock. All
+ * modifications are applied through a {@link CatalogUpdateQueue}, which
+ * refreshes the subscribed components within the access of their UI.
+ * <p>
+ * A catalog which is created with a key is registered under this key. Such a
+ * catalog is serialized by its key only and is resolved to the registered
+ * catalog again on deserialization (e.g. on session persistence or
+ * replication). Therefore the application has to create the catalog with the
+ * same key before sessions are deserialized. A catalog without a key is
+ * serialized completely, so every deserialized session holds its own copy,
+ * which is not updated by any {@link CatalogUpdateQueue}.
+ *
+ * @param <T> The type of the items.
+ */
+public class SortedCatalog<T> implements Serializable {
+  // Statics.
+  private static final Map<String, SortedCatalog<?>> REGISTRY = new ConcurrentHashMap<>();
+
+  private final String key;
+  private final ItemCaptionGenerator<T> itemCaptionGenerator;
+
+  // The current instance of each item by itself. Guarded by this.
+  private final Map<T, T> items = new LinkedHashMap<>();
+  // The views are shared and are therefore resolved again after
+  // deserialization instead of being serialized.
+  private transient Map<Locale, SortedCatalogDataProvider<T>> views = new HashMap<>();
+
+  /**
+   * Creates a new catalog with the given items, which is not registered. A
+   * catalog without a key is serialized completely.
+   *
+   * @param items                The initial items.
+   * @param itemCaptionGenerator The caption generator, which is used for
+   *                             sorting and for the captions of the selects.
+   */
+  public SortedCatalog (Collection<T> items, ItemCaptionGenerator<T> itemCaptionGenerator) {
+    this(null, items, itemCaptionGenerator);
+  }
+
+  /**
+   * Creates a new catalog with the given items and registers it under the
+   * given key. A previous catalog with the same key will be replaced. The
+   * catalog is serialized by its key only.
+   *
+   * @param key                  The key to register the catalog with or
+   *                             null to not register it.
+   * @param items                The initial items.
+   * @param itemCaptionGenerator The caption generator, which is used for
+   *                             sorting and for the captions of the selects.
+   */
+  public SortedCatalog (String key, Collection<T> items, ItemCaptionGenerator<T> itemCaptionGenerator) {
+    for (T item : Objects.requireNonNull(items))
+      this.items.put(item, item);
+    this.itemCaptionGenerator = Objects.requireNonNull(itemCaptionGenerator);
+    this.key = key;
+
+    if (key != null)
+      REGISTRY.put(key, this);
+  }
+
+  /**
+   * Will return the key of this catalog.
+   *
+   * @return The key or null if this catalog is not registered.
+   */
+  public String getKey () {
+    return key;
+  }
+
+  /**
+   * Will return the caption generator of this catalog.
+   *
+   * @return The caption generator. Never null.
+   */
+  public ItemCaptionGenerator<T> getItemCaptionGenerator () {
+    return itemCaptionGenerator;
+  }
+
+  /**
+   * Will return the {@link DataProvider} which provides the items sorted by
+   * their caption for the given locale. The view is created on the first
+   * call and shared afterwards.
+   *
+   * @param locale The locale for the collation.
+   * @return The data provider for the locale.
+   */
+  public synchronized DataProvider<T, Void> getDataProvider (Locale locale) {
+    Objects.requireNonNull(locale);
+    return views.computeIfAbsent(locale, key -> new SortedCatalogDataProvider<>(this, key));
+  }
+
+  /**
+   * Will apply the given changes to the catalog and all views without
+   * notifying the listeners of the data providers. This is used by the
+   * {@link CatalogUpdateQueue}, which notifies the subscribed components on
+   * its own. The addition of an item which is already part of the catalog
+   * will refresh the item instead. Each view builds a single new snapshot for
+   * all changes.
+   *
+   * @param changes The changes by their item.
+   * @return How the catalog has been changed.
+   */
+  synchronized Result applyChanges (Map<T, Change> changes) {
+    // The views have to be available before the items are modified, as they
+    // would be built from the modified items otherwise.
+    for (SortedCatalogDataProvider<T> view : views.values())
+      view.ensureSnapshot();
+
+    List<T> removed = new ArrayList<>();
+    List<T> inserted = new ArrayList<>();
+    boolean restructured = false;
+
+    for (Map.Entry<T, Change> entry : changes.entrySet()) {
+      T item = entry.getKey();
+
+      switch (entry.getValue()) {
+        case ADD:
+          // An existing item is replaced, so this is a refresh.
+          if (items.remove(item) != null)
+            removed.add(item);
+          else
+            restructured = true;
+
+          items.put(item, item);
+          inserted.add(item);
+          break;
+
+        case REMOVE:
+          if (items.remove(item) != null) {
+            removed.add(item);
+            restructured = true;
+          }
+          break;
+
+        case REFRESH:
+          // Replace the previous instance, so views which are created later
+          // on use the refreshed item as well.
+          if (items.remove(item) != null) {
+            items.put(item, item);
+            removed.add(item);
+            inserted.add(item);
+          }
+          break;
+
+        default:
+          throw new IllegalArgumentException("Unknown change: " + entry.getValue());
+      }
+    }
+
+    if (removed.isEmpty() && inserted.isEmpty())
+      return Result.UNCHANGED;
+
+    // A refresh might move the item within the sorted order.
+    for (SortedCatalogDataProvider<T> view : views.values())
+      restructured |= view.apply(removed, inserted);
+
+    return restructured ? Result.RESTRUCTURED : Result.REFRESHED;
+  }
+
+  /**
+   * Will return the current instance of the given item, which might have been
+   * replaced by a refresh.
+   *
+   * @param item The item to look up.
+   * @return The current instance or the given item, if it is not part of
+   * this catalog.
+   */
+  synchronized T getCurrentItem (T item) {
+    return items.getOrDefault(item, item);
+  }
+
+  /**
+   * Will return a copy of the current items. This has to be called while the
+   * lock of this catalog is held.
+   *
+   * @return The current items.
+   */
+  List<T> getItems () {
+    return new ArrayList<>(items.keySet());
+  }
+
+  /**
+   * Will replace a registered catalog by its key on serialization.
+   */
+  private Object writeReplace () {
+    return key != null ? new SerializedCatalog(key) : this;
+  }
+
+  private void readObject (ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    views = new HashMap<>();
+  }
+
+  /**
+   * The serialized form of a registered catalog, which is resolved to the
+   * catalog with the same key on deserialization.
+   */
+  private static final class SerializedCatalog implements Serializable {
+    private final String key;
+
+    private SerializedCatalog (String key) {
+      this.key = key;
+    }
+
+    private Object readResolve () throws InvalidObjectException {
+      SortedCatalog<?> catalog = REGISTRY.get(key);
+
+      if (catalog == null)
+        throw new InvalidObjectException("No sorted catalog has been registered with the key \"" + key + "\"");
+
+      return catalog;
+    }
+  }
+
+  /**
+   * The kind of a change of an item.
+   */
+  enum Change {
+    ADD,
+    REMOVE,
+    REFRESH
+  }
+
+  /**
+   * The result of applying changes to the catalog.
+   */
+  enum Result {
+    /**
+     * Nothing has been changed.
+     */
+    UNCHANGED,
+    /**
+     * Only existing items have been refreshed and the order of all views is
+     * unchanged.
+     */
+    REFRESHED,
+    /**
+     * Items have been added or removed or the order of a view has changed.
+     */
+    RESTRUCTURED
+  }
+}
@@ -0,0 +1,241 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect;
+
+import com.vaadin.data.provider.AbstractDataProvider;
+import com.vaadin.data.provider.DataChangeEvent;
+import com.vaadin.data.provider.DataProviderListener;
+import com.vaadin.data.provider.Query;
+import com.vaadin.shared.Registration;
+
+import java.io.Serializable;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * A view on a {@link SortedCatalog}, which provides the items sorted by their
+ * caption for a specific {@link Locale}. The sorted items are kept in an
+ * immutable snapshot, which is replaced on every modification. Fetches are
+ * therefore served without any locking.
+ * <p>
+ * A view is shared by all sessions, which add and remove their listeners
+ * while holding their own session lock only. Therefore the listeners are kept
+ * in a concurrent collection instead of the event router of
+ * {@link AbstractDataProvider}, which is not thread-safe. A view is
+ * serialized by its catalog and locale only, so it is resolved to the shared
+ * view of the catalog again. The listeners are not serialized, as changes of
+ * the catalog are delivered by the {@link CatalogUpdateQueue}.
+ *
+ * @param <T> The type of the items.
+ */
+class SortedCatalogDataProvider<T> extends AbstractDataProvider<T, Void> {
+  private final SortedCatalog<T> catalog;
+  private final Locale locale;
+  private final transient List<DataProviderListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+  // The collation state can not be serialized and will be rebuilt on demand.
+  // Guarded by the catalog.
+  private transient Collator collator;
+  private transient Map<T, CollationKey> keysByItem;
+  private transient volatile Snapshot<T> snapshot;
+
+  SortedCatalogDataProvider (SortedCatalog<T> catalog, Locale locale) {
+    this.catalog = catalog;
+    this.locale = locale;
+    rebuild();
+  }
+
+  @Override
+  public Registration addDataProviderListener (DataProviderListener<T> listener) {
+    Objects.requireNonNull(listener);
+    listeners.add(listener);
+    return () -> listeners.remove(listener);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected void fireEvent (EventObject event) {
+    for (DataProviderListener<T> listener : listeners)
+      listener.onDataChange((DataChangeEvent<T>) event);
+  }
+
+  @Override
+  public boolean isInMemory () {
+    return true;
+  }
+
+  @Override
+  public int size (Query<T, Void> query) {
+    return getSnapshot().items.size();
+  }
+
+  @Override
+  public Stream<T> fetch (Query<T, Void> query) {
+    List<T> items = getSnapshot().items;
+
+    int from = Math.min(query.getOffset(), items.size());
+    int to = (int) Math.min((long) from + query.getLimit(), items.size());
+
+    return items.subList(from, to).stream();
+  }
+
+  /**
+   * Will remove and insert the given items and replace the snapshot once. A
+   * refreshed item is part of both collections. The inserted items are sorted
+   * and merged with the remaining items, so this is linear in the size of the
+   * view apart from sorting the inserted items. This has to be called while
+   * the lock of the catalog is held.
+   *
+   * @param removed  The items to remove.
+   * @param inserted The items to insert.
+   * @return If the order of the items has changed. This is also the case if
+   * items have been added or removed.
+   */
+  boolean apply (Collection<T> removed, Collection<T> inserted) {
+    Snapshot<T> current = getSnapshot();
+
+    Set<T> removedItems = new HashSet<>(removed);
+    for (T item : removed)
+      keysByItem.remove(item);
+
+    List<T> insertedItems = new ArrayList<>(inserted);
+    for (T item : insertedItems)
+      keysByItem.put(item, createKey(item));
+    insertedItems.sort(Comparator.comparing(keysByItem::get));
+
+    int size = keysByItem.size();
+    List<T> items = new ArrayList<>(size);
+    List<CollationKey> keys = new ArrayList<>(size);
+
+    int index = 0;
+    int insertedIndex = 0;
+    while (index < current.items.size() || insertedIndex < insertedItems.size()) {
+      // Skip the removed items. This also skips the previous instances of
+      // refreshed items.
+      if (index < current.items.size() && removedItems.contains(current.items.get(index))) {
+        index++;
+        continue;
+      }
+
+      // Insert after all items with an equal key, to keep the insertion
+      // order stable.
+      if (insertedIndex < insertedItems.size() && (index == current.items.size()
+          || keysByItem.get(insertedItems.get(insertedIndex)).compareTo(current.keys.get(index)) < 0)) {
+        T item = insertedItems.get(insertedIndex++);
+        items.add(item);
+        keys.add(keysByItem.get(item));
+      } else {
+        items.add(current.items.get(index));
+        keys.add(current.keys.get(index));
+        index++;
+      }
+    }
+
+    snapshot = new Snapshot<>(items, keys);
+    return !items.equals(current.items);
+  }
+
+  /**
+   * Will make sure the snapshot is available. This has to be called before
+   * the items of the catalog are modified.
+   */
+  void ensureSnapshot () {
+    getSnapshot();
+  }
+
+  /**
+   * Will return the current snapshot. If the snapshot is not available (e.g.
+   * after deserialization), it will be rebuilt.
+   *
+   * @return The current snapshot.
+   */
+  private Snapshot<T> getSnapshot () {
+    Snapshot<T> current = snapshot;
+
+    if (current == null) {
+      synchronized (catalog) {
+        if (snapshot == null)
+          rebuild();
+        current = snapshot;
+      }
+    }
+
+    return current;
+  }
+
+  /**
+   * Will compute the collation keys of all items of the catalog and sort
+   * them. This has to be called while the lock of the catalog is held.
+   */
+  private void rebuild () {
+    collator = Collator.getInstance(locale);
+    keysByItem = new HashMap<>();
+
+    List<T> items = catalog.getItems();
+    for (T item : items)
+      keysByItem.put(item, createKey(item));
+
+    items.sort(Comparator.comparing(keysByItem::get));
+
+    List<CollationKey> keys = new ArrayList<>(items.size());
+    for (T item : items)
+      keys.add(keysByItem.get(item));
+
+    snapshot = new Snapshot<>(items, keys);
+  }
+
+  private CollationKey createKey (T item) {
+    String caption = catalog.getItemCaptionGenerator().apply(item);
+    return collator.getCollationKey(caption != null ? caption : "");
+  }
+
+  /**
+   * Will replace this view by its catalog and locale on serialization.
+   */
+  private Object writeReplace () {
+    return new SerializedView<>(catalog, locale);
+  }
+
+  /**
+   * The serialized form of a view, which is resolved to the view of the
+   * catalog for the same locale on deserialization.
+   */
+  private static final class SerializedView<T> implements Serializable {
+    private final SortedCatalog<T> catalog;
+    private final Locale locale;
+
+    private SerializedView (SortedCatalog<T> catalog, Locale locale) {
+      this.catalog = catalog;
+      this.locale = locale;
+    }
+
+    private Object readResolve () {
+      return catalog.getDataProvider(locale);
+    }
+  }
+
+  /**
+   * An immutable state of the sorted items and their collation keys.
+   */
+  private static final class Snapshot<T> {
+    private final List<T> items;
+    private final List<CollationKey> keys;
+
+    private Snapshot (List<T> items, List<CollationKey> keys) {
+      this.items = Collections.unmodifiableList(items);
+      this.keys = Collections.unmodifiableList(keys);
+    }
+  }
+}
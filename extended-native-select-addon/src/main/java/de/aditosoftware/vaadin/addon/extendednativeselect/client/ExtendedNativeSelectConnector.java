@@ -24,6 +24,10 @@ public class ExtendedNativeSelectConnector
   // Listener registrations.
   private Registration dataSourceChangeRegistration;
 
+  // If the options have been requested by the widget. Once requested, the
+  // options will be kept up to date.
+  private boolean optionsRequested = false;
+
   // RPC registrations.
   private final SelectionServerRpc selectionRpc =
       getRpcProxy(SelectionServerRpc.class);
@@ -35,6 +39,9 @@ public class ExtendedNativeSelectConnector
     // Add a change listener, which will be called when the value changes on
     // the client-side.
     getWidget().getSelect().addChangeListener(selectionRpc::select);
+
+    // The options are only fetched when the widget actually needs them.
+    getWidget().getSelect().addOptionsRequestListener(this::requestOptions);
   }
 
   @Override
@@ -64,10 +71,12 @@ public class ExtendedNativeSelectConnector
 
   /**
    * Will update the currently selected item on the current {@link InnerSelectWidget}
-   * when the "selectedItemItemKey" property changes. This will simply delegate
-   * the new value of the property to the widget.
+   * when the "selectedItemKey" or "selectedItemCaption" property changes. This
+   * will simply delegate the new values of the properties to the widget. The
+   * caption allows the widget to render the selected item before the options
+   * have been loaded.
    */
-  @OnStateChange({"selectedItemKey"})
+  @OnStateChange({"selectedItemKey", "selectedItemCaption"})
   private void onSelectedItemKeyChange () {
     try {
       String key = getState().selectedItemKey;
@@ -75,13 +84,25 @@ public class ExtendedNativeSelectConnector
       // If null is given, this means that no value (aka placeholder) shall be
       // selected.
       if (key == null)
-        getWidget().getSelect().setCurrentValue(null);
+        getWidget().getSelect().setCurrentValue(null, null);
       else
-        getWidget().getSelect().setCurrentValue(getState().selectedItemKey);
+        getWidget().getSelect().setCurrentValue(key, getState().selectedItemCaption);
     } catch (Exception ignored) {
     }
   }
 
+  /**
+   * Will request all options from the current {@link DataSource}. The options
+   * will be set on the widget as soon as they arrive.
+   */
+  private void requestOptions () {
+    optionsRequested = true;
+
+    DataSource<JsonObject> dataSource = getDataSource();
+    if (dataSource != null)
+      dataSource.ensureAvailability(0, dataSource.size());
+  }
+
   /**
    * Will unregister the current {@link DataSource}, if there have been any
    * and register listeners on the given one and will continue to use the
@@ -103,15 +124,24 @@ public class ExtendedNativeSelectConnector
 
   /**
    * Will process the current {@link DataSource} (provided by {@link this#getDataSource()}.
-   * This will also update the currently selected value.
+   * This will also update the currently selected value. If not all rows are
+   * available (e.g. after the data has been reset), they will be requested
+   * again if the options have already been requested before.
    *
    * @param range The new range for the data.
    */
   private void onDataChange (Range range) {
     List<KeyValueOption> entries = new ArrayList<>();
-    for (int i = range.getStart(); i < range.getEnd(); i++) {
+    for (int i = 0; i < getDataSource().size(); i++) {
       JsonObject rowData = getDataSource().getRow(i);
 
+      // Wait for the remaining rows, if they are needed at all.
+      if (rowData == null) {
+        if (optionsRequested)
+          requestOptions();
+        return;
+      }
+
       JsonValue keyValue = rowData.get(DataCommunicatorConstants.KEY);
       JsonValue dataValue = rowData.get(DataCommunicatorConstants.DATA);
 
@@ -12,4 +12,10 @@ public class ExtendedNativeSelectState extends AbstractSingleSelectState {
    * If there is an empty option to reset the current selection.
    */
   public boolean emptySelectionAllowed;
+
+  /**
+   * The caption of the selected item. This allows the client to render the
+   * selected item before the options have been requested.
+   */
+  public String selectedItemCaption;
 }
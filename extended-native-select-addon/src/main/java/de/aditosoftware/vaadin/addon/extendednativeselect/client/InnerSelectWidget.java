@@ -5,6 +5,9 @@ import com.google.gwt.dom.client.SelectElement;
 import com.google.gwt.event.dom.client.ChangeEvent;
 import com.google.gwt.event.dom.client.KeyCodes;
 import com.google.gwt.event.dom.client.KeyDownEvent;
+import com.google.gwt.event.dom.client.MouseDownEvent;
+import com.google.gwt.event.dom.client.MouseOverEvent;
+import com.google.gwt.event.dom.client.TouchStartEvent;
 import com.google.gwt.safehtml.shared.SafeHtmlUtils;
 import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.ui.FocusWidget;
@@ -15,7 +18,6 @@ import de.aditosoftware.vaadin.addon.extendednativeselect.client.util.KeyValueOp
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.function.Consumer;
 
 /**
  * Implements a native `select` element. This is capable of having a
@@ -38,7 +40,8 @@ class InnerSelectWidget extends FocusWidget implements HasEnabled, Focusable {
   private List<KeyValueOption> currentOptions = null;
   private KeyValueOption currentValue = null;
 
-  private final List<Consumer<String>> changeListeners = new ArrayList<>();
+  private final List<ChangeListener> changeListeners = new ArrayList<>();
+  private final List<Runnable> optionsRequestListeners = new ArrayList<>();
 
   public InnerSelectWidget () {
     super(DOM.createSelect());
@@ -54,6 +57,14 @@ class InnerSelectWidget extends FocusWidget implements HasEnabled, Focusable {
     // Register a listener on the element to detect value changes.
     addDomHandler(this::onSelectionChange, ChangeEvent.getType());
     addDomHandler(this::onKeyDown, KeyDownEvent.getType());
+
+    // Register listeners on the element to detect when the options are
+    // about to be needed. Hovering and touching happen before the native
+    // popup opens, which gives the options a round trip to arrive.
+    addDomHandler(event -> onOptionsRequest(), MouseOverEvent.getType());
+    addDomHandler(event -> onOptionsRequest(), TouchStartEvent.getType());
+    addDomHandler(event -> onOptionsRequest(), MouseDownEvent.getType());
+    addFocusHandler(event -> onOptionsRequest());
   }
 
   /**
@@ -77,25 +88,39 @@ class InnerSelectWidget extends FocusWidget implements HasEnabled, Focusable {
 
   /**
    * Will set the given {@link KeyValueOption} as selected item. If the item
-   * does not exist on this widget, this will just do nothing.
+   * does not exist in the current options, the given caption will be used to
+   * render the item as single option. If no caption is given either, this
+   * will just do nothing.
    *
-   * @param key The option to set as selected.
+   * @param key     The key of the option to set as selected.
+   * @param caption The caption of the option, which is used if the option is
+   *                not available in the current options. May be null.
    */
-  public void setCurrentValue (String key) {
+  public void setCurrentValue (String key, String caption) {
     if (key == null) {
       currentValue = null;
       getSelectElement().setValue(PLACEHOLDER_VALUE);
     } else {
       KeyValueOption resolvedOption = getOptionByKey(key);
 
-      // Return if there are currently no options or the key does not exist
-      // in the current options.
-      if (currentOptions == null || resolvedOption == null)
-        return;
+      // If the option is not available in the current options, the option
+      // will be rendered on its own. Return if there is no caption to render.
+      if (resolvedOption == null) {
+        if (caption == null)
+          return;
+
+        resolvedOption = new KeyValueOption(key, caption);
+      }
 
-      // Save the current value and set the value of the select element.
+      KeyValueOption previousValue = currentValue;
       currentValue = resolvedOption;
-      getSelectElement().setValue(getExposedOptionID(resolvedOption));
+
+      // A refresh is required if the single option has to be added or
+      // removed, otherwise the value of the select element is sufficient.
+      if (!isAvailable(resolvedOption) || (previousValue != null && !isAvailable(previousValue)))
+        refresh();
+      else
+        getSelectElement().setValue(getExposedOptionID(resolvedOption));
     }
   }
 
@@ -157,13 +182,23 @@ class InnerSelectWidget extends FocusWidget implements HasEnabled, Focusable {
    * select element changes. This will wrap the actual change event and
    * resolve the user selected option correctly.
    *
-   * @param listener The consumer to trigger when the selection changes.
-   * @return The registration for the event, which allows to remove the handler.
+   * @param listener The listener to trigger when the selection changes.
    */
-  public void addChangeListener (Consumer<String> listener) {
+  public void addChangeListener (ChangeListener listener) {
     changeListeners.add(listener);
   }
 
+  /**
+   * Will add an listener, which will be triggered when the options are
+   * needed by the user (e.g. the select element gets focused) but have not
+   * been set yet.
+   *
+   * @param listener The runnable to trigger when the options are needed.
+   */
+  public void addOptionsRequestListener (Runnable listener) {
+    optionsRequestListeners.add(listener);
+  }
+
   /**
    * Will return the element of this widget casted to an {@link SelectElement}.
    *
@@ -175,30 +210,35 @@ class InnerSelectWidget extends FocusWidget implements HasEnabled, Focusable {
 
   /**
    * Will refresh the current select element. This will basically just clear
-   * the select element and add the required option elements.
+   * the select element and add the required option elements. If the current
+   * value is not available in the current options (e.g. because the options
+   * have not been requested yet), it will be added as single option.
    */
   private void refresh () {
     // Clear the select element.
     getSelectElement().clear();
 
-    // If we do not even have options, we can not proceed.
-    if (currentOptions != null) {
-      // Always add the placeholder option.
-      getSelectElement().add(createPlaceholderOption(), null);
-
-      // If the empty selection is allowed, we just add an additional option.
-      if (emptySelectionAllowed)
-        getSelectElement().add(createEmptyOption(), null);
+    // Always add the placeholder option.
+    getSelectElement().add(createPlaceholderOption(), null);
 
-      // Add all options and set the last value.
-      currentOptions.forEach(entry -> getSelectElement()
-          .add(createOption(entry.getKey(), entry.getValue()), null));
+    // If the empty selection is allowed, we just add an additional option.
+    if (emptySelectionAllowed)
+      getSelectElement().add(createEmptyOption(), null);
 
-      // Apply the current value.
-      getSelectElement().setValue(currentValue == null
-          ? PLACEHOLDER_VALUE
-          : getExposedOptionID(currentValue));
+    // Add all options.
+    if (currentOptions != null) {
+      for (KeyValueOption entry : currentOptions)
+        getSelectElement().add(createOption(entry.getKey(), entry.getValue()), null);
     }
+
+    // Add the current value on its own, if it is not part of the options.
+    if (currentValue != null && !isAvailable(currentValue))
+      getSelectElement().add(createOption(currentValue.getKey(), currentValue.getValue()), null);
+
+    // Apply the current value.
+    getSelectElement().setValue(currentValue == null
+        ? PLACEHOLDER_VALUE
+        : getExposedOptionID(currentValue));
   }
 
   /**
@@ -280,13 +320,30 @@ class InnerSelectWidget extends FocusWidget implements HasEnabled, Focusable {
         currentValue = null;
         refresh();
       } else {
-        // Resolve the option by the given internal option ID.
-        currentValue = getOptionByKey(internalOptionID);
+        // Resolve the option by the given internal option ID. The current
+        // value is kept if it has been rendered as single option.
+        KeyValueOption resolvedOption = getOptionByKey(internalOptionID);
+        if (resolvedOption != null || currentValue == null
+            || !Objects.equals(currentValue.getKey(), internalOptionID))
+          currentValue = resolvedOption;
       }
     }
 
     // Notify the change listeners with the new value.
-    changeListeners.forEach(it -> it.accept(currentValue.getKey()));
+    String key = currentValue != null ? currentValue.getKey() : null;
+    for (ChangeListener listener : changeListeners)
+      listener.onChange(key);
+  }
+
+  /**
+   * Will notify the options request listeners if the options have not been
+   * set yet.
+   */
+  private void onOptionsRequest () {
+    if (currentOptions == null) {
+      for (Runnable listener : optionsRequestListeners)
+        listener.run();
+    }
   }
 
   /**
@@ -313,12 +370,28 @@ class InnerSelectWidget extends FocusWidget implements HasEnabled, Focusable {
    * @return The {@link KeyValueOption} or null if non exists.
    */
   private KeyValueOption getOptionByKey (String key) {
-    if (key == null)
+    if (key == null || currentOptions == null)
       return null;
 
-    return currentOptions.stream()
-        .filter(element -> Objects.equals(element.getKey(), key))
-        .findFirst().orElse(null);
+    // A plain loop is used on purpose, as streams add noticeable weight to
+    // the compiled widgetset.
+    for (KeyValueOption option : currentOptions) {
+      if (Objects.equals(option.getKey(), key))
+        return option;
+    }
+
+    return null;
+  }
+
+  /**
+   * Will return if the given {@link KeyValueOption} is part of the current
+   * options.
+   *
+   * @param option The option to check.
+   * @return If the option is available in the current options.
+   */
+  private boolean isAvailable (KeyValueOption option) {
+    return currentOptions != null && currentOptions.contains(option);
   }
 
   /**
@@ -350,4 +423,19 @@ class InnerSelectWidget extends FocusWidget implements HasEnabled, Focusable {
 
     return input.substring(1);
   }
+
+  /**
+   * A listener for the selection changes of the select element. This is used
+   * instead of java.util.function.Consumer, so the widget does not depend on
+   * the emulation of java.util.function.
+   */
+  interface ChangeListener {
+    /**
+     * Will be called when the user changed the selection.
+     *
+     * @param key The key of the selected option or null for the empty
+     *            selection.
+     */
+    void onChange (String key);
+  }
 }
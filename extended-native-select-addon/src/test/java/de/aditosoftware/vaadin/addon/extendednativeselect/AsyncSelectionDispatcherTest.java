@@ -0,0 +1,147 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncSelectionDispatcherTest {
+	private ExtendedNativeSelect<String> select;
+	private List<String> processed;
+	private List<String> applied;
+	private Runnable whileProcessing;
+
+	@Before
+	public void setUp() {
+		select = new ExtendedNativeSelect<>();
+		select.setItems("a", "b", "c");
+		processed = Collections.synchronizedList(new ArrayList<>());
+		applied = new ArrayList<>();
+		select.addAsyncSelectionListener(this::process, applied::add);
+	}
+
+	@Test
+	public void processesSynchronouslyWithoutExecutor() {
+		new TestUI().setContent(select);
+
+		select.setValue("a");
+
+		assertEquals(Collections.singletonList("a"), processed);
+		assertEquals(Collections.singletonList("A"), applied);
+	}
+
+	@Test
+	public void processesSynchronouslyWithoutUI() {
+		List<Runnable> tasks = new ArrayList<>();
+		select.setSelectionExecutor(tasks::add);
+
+		select.setValue("a");
+
+		assertTrue(tasks.isEmpty());
+		assertEquals(Collections.singletonList("A"), applied);
+	}
+
+	@Test
+	public void processesOnTheExecutor() {
+		List<Runnable> tasks = new ArrayList<>();
+		select.setSelectionExecutor(tasks::add);
+		new TestUI().setContent(select);
+
+		select.setValue("a");
+		assertTrue(applied.isEmpty());
+
+		runAll(tasks);
+		assertEquals(Collections.singletonList("A"), applied);
+	}
+
+	@Test
+	public void dropsSupersededSelections() {
+		List<Runnable> tasks = new ArrayList<>();
+		select.setSelectionExecutor(tasks::add);
+		new TestUI().setContent(select);
+
+		select.setValue("a");
+		select.setValue("b");
+		runAll(tasks);
+
+		// The first selection is not even processed, as it has been superseded before.
+		assertEquals(Collections.singletonList("b"), processed);
+		assertEquals(Collections.singletonList("B"), applied);
+	}
+
+	@Test
+	public void dropsResultsOfSelectionsSupersededWhileProcessing() {
+		List<Runnable> tasks = new ArrayList<>();
+		select.setSelectionExecutor(tasks::add);
+		new TestUI().setContent(select);
+		whileProcessing = () -> select.setValue("b");
+
+		select.setValue("a");
+		runAll(tasks);
+
+		assertEquals(Arrays.asList("a", "b"), processed);
+		assertEquals(Collections.singletonList("B"), applied);
+	}
+
+	@Test
+	public void reportsRejectedSelections() {
+		List<Throwable> errors = new ArrayList<>();
+		TestUI ui = new TestUI();
+		ui.setErrorHandler(event -> errors.add(event.getThrowable()));
+		ui.setContent(select);
+		select.setSelectionExecutor(runnable -> {
+			throw new RejectedExecutionException();
+		});
+
+		select.setValue("a");
+
+		assertTrue(applied.isEmpty());
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0) instanceof RejectedExecutionException);
+	}
+
+	@Test
+	public void detectsTheExecutorLostBySerialization() throws Exception {
+		ExtendedNativeSelect<String> select = new ExtendedNativeSelect<>();
+		select.setSelectionExecutor(Runnable::run);
+		assertFalse(select.isSelectionExecutorLost());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(select);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertTrue(((ExtendedNativeSelect<?>) in.readObject()).isSelectionExecutorLost());
+		}
+	}
+
+	private String process(Optional<String> selection) {
+		processed.add(selection.orElse(null));
+
+		if (whileProcessing != null) {
+			Runnable runnable = whileProcessing;
+			whileProcessing = null;
+			runnable.run();
+		}
+
+		return selection.map(String::toUpperCase).orElse(null);
+	}
+
+	private static void runAll(List<Runnable> tasks) {
+		while (!tasks.isEmpty())
+			tasks.remove(0).run();
+	}
+}
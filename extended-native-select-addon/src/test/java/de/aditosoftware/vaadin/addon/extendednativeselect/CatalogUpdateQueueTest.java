@@ -0,0 +1,197 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect;
+
+import com.vaadin.data.provider.Query;
+import com.vaadin.shared.Registration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CatalogUpdateQueueTest {
+	private ScheduledExecutorService scheduler;
+	private SortedCatalog<TestItem> catalog;
+	private CatalogUpdateQueue<TestItem> queue;
+
+	@Before
+	public void setUp() {
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		catalog = new SortedCatalog<>(Arrays.asList(new TestItem(1, "B"), new TestItem(2, "C")), TestItem::getName);
+		// All changes of a test are queued within the window.
+		queue = new CatalogUpdateQueue<>(catalog, scheduler, 200, TimeUnit.MILLISECONDS);
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void keepsTheLatestInstance() throws InterruptedException {
+		TestItem latest = new TestItem(2, "A");
+		queue.refreshItem(new TestItem(2, "D"));
+		queue.refreshItem(latest);
+		awaitFlush();
+
+		assertSame(latest, fetch().get(0));
+	}
+
+	@Test
+	public void keepsTheAdditionOnRefresh() throws InterruptedException {
+		TestItem latest = new TestItem(3, "A");
+		queue.addItem(new TestItem(3, "D"));
+		queue.refreshItem(latest);
+		awaitFlush();
+
+		assertSame(latest, fetch().get(0));
+		assertEquals(3, fetch().size());
+	}
+
+	@Test
+	public void keepsTheRemovalOnRefresh() throws InterruptedException {
+		queue.removeItem(new TestItem(1, "B"));
+		queue.refreshItem(new TestItem(1, "A"));
+		awaitFlush();
+
+		assertEquals(Collections.singletonList("C"), fetchNames());
+	}
+
+	@Test
+	public void appliesTheLaterAdditionOrRemoval() throws InterruptedException {
+		queue.addItem(new TestItem(3, "A"));
+		queue.removeItem(new TestItem(3, "A"));
+		queue.removeItem(new TestItem(1, "B"));
+		queue.addItem(new TestItem(1, "D"));
+		awaitFlush();
+
+		assertEquals(Arrays.asList("C", "D"), fetchNames());
+	}
+
+	@Test
+	public void refreshesTheAttachedSubscribers() throws InterruptedException {
+		TestUI ui = new TestUI();
+		ExtendedNativeSelect<TestItem> select = new ExtendedNativeSelect<>();
+		select.setCatalog(catalog);
+		ui.setContent(select);
+		ui.attachToSession();
+		select.setValue(new TestItem(1, "B"));
+		queue.subscribe(select);
+
+		queue.refreshItem(new TestItem(1, "A"));
+		awaitFlush();
+
+		assertEquals("A", select.getState(false).selectedItemCaption);
+	}
+
+	@Test
+	public void resetsTheSubscribersWhenTheOrderChanges() throws InterruptedException {
+		TestUI ui = new TestUI();
+		ExtendedNativeSelect<TestItem> select = new ExtendedNativeSelect<>();
+		select.setCatalog(catalog);
+		ui.setContent(select);
+		ui.attachToSession();
+		select.setValue(new TestItem(1, "B"));
+		queue.subscribe(select);
+
+		queue.refreshItem(new TestItem(1, "D"));
+		awaitFlush();
+
+		assertEquals("D", select.getState(false).selectedItemCaption);
+		assertEquals(Arrays.asList("C", "D"), fetchNames());
+	}
+
+	@Test
+	public void skipsTheDetachedSubscribers() throws InterruptedException {
+		TestUI ui = new TestUI();
+		ExtendedNativeSelect<TestItem> select = new ExtendedNativeSelect<>();
+		select.setCatalog(catalog);
+		ui.setContent(select);
+		ui.attachToSession();
+		select.setValue(new TestItem(1, "B"));
+		queue.subscribe(select);
+		ui.setContent(null);
+
+		queue.refreshItem(new TestItem(1, "A"));
+		awaitFlush();
+
+		assertEquals("B", select.getState(false).selectedItemCaption);
+	}
+
+	@Test
+	public void removesTheSubscription() throws InterruptedException {
+		TestUI ui = new TestUI();
+		ExtendedNativeSelect<TestItem> select = new ExtendedNativeSelect<>();
+		select.setCatalog(catalog);
+		ui.setContent(select);
+		ui.attachToSession();
+		select.setValue(new TestItem(1, "B"));
+		Registration registration = queue.subscribe(select);
+		registration.remove();
+
+		queue.refreshItem(new TestItem(1, "A"));
+		awaitFlush();
+
+		assertEquals("B", select.getState(false).selectedItemCaption);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void serializesASubscribedSelect() throws Exception {
+		ExtendedNativeSelect<TestItem> select = new ExtendedNativeSelect<>();
+		select.setCatalog(catalog);
+		Registration registration = queue.subscribe(select);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(select);
+			out.writeObject(registration);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			ExtendedNativeSelect<TestItem> deserialized = (ExtendedNativeSelect<TestItem>) in.readObject();
+
+			// The deserialized subscription is not connected to the queue anymore.
+			TestUI ui = new TestUI();
+			ui.setContent(deserialized);
+			ui.attachToSession();
+			deserialized.setValue(new TestItem(1, "B"));
+			((Registration) in.readObject()).remove();
+
+			queue.refreshItem(new TestItem(1, "A"));
+			awaitFlush();
+
+			assertEquals("B", deserialized.getState(false).selectedItemCaption);
+		}
+	}
+
+	/**
+	 * Will wait until the scheduled flush has been completed. Delayed tasks are
+	 * still executed after the scheduler has been shut down.
+	 */
+	private void awaitFlush() throws InterruptedException {
+		scheduler.shutdown();
+		assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	private List<TestItem> fetch() {
+		return catalog.getDataProvider(Locale.GERMAN).fetch(new Query<>()).collect(Collectors.toList());
+	}
+
+	private List<String> fetchNames() {
+		return fetch().stream().map(TestItem::getName).collect(Collectors.toList());
+	}
+}
@@ -1,13 +1,67 @@
 package de.aditosoftware.vaadin.addon.extendednativeselect;
 
-import junit.framework.Assert;
 import org.junit.Test;
 
-// JUnit tests here
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 public class ExtendedNativeSelectTest {
 
 	@Test
-	public void thisAlwaysPasses() {
-		Assert.assertEquals(true, true);
+	public void providesTheCaptionOfTheSelectedItem() {
+		ExtendedNativeSelect<TestItem> select = createSelect(new TestItem(1, "A"), new TestItem(2, "B"));
+
+		select.setValue(new TestItem(2, "B"));
+		assertEquals("B", select.getState(false).selectedItemCaption);
+
+		select.setItemCaptionGenerator(item -> item.getName().toLowerCase());
+		assertEquals("b", select.getState(false).selectedItemCaption);
+
+		select.setValue(null);
+		assertNull(select.getState(false).selectedItemCaption);
+	}
+
+	@Test
+	public void updatesTheCaptionOnRefreshItem() {
+		ExtendedNativeSelect<TestItem> select = createSelect(new TestItem(1, "A"), new TestItem(2, "B"));
+		attach(select);
+		select.setValue(new TestItem(2, "B"));
+
+		select.getDataProvider().refreshItem(new TestItem(2, "C"));
+		assertEquals("C", select.getState(false).selectedItemCaption);
+
+		// Other items do not change the caption.
+		select.getDataProvider().refreshItem(new TestItem(1, "D"));
+		assertEquals("C", select.getState(false).selectedItemCaption);
+	}
+
+	@Test
+	public void updatesTheCaptionOnRefreshAll() {
+		ExtendedNativeSelect<TestItem> select = createSelect(new TestItem(1, "A"), new TestItem(2, "B"));
+		Map<Integer, String> captions = new HashMap<>();
+		captions.put(2, "B");
+		select.setItemCaptionGenerator(item -> captions.get(item.getId()));
+		attach(select);
+		select.setValue(new TestItem(2, "B"));
+
+		captions.put(2, "C");
+		select.getDataProvider().refreshAll();
+		assertEquals("C", select.getState(false).selectedItemCaption);
+	}
+
+	private static void attach(ExtendedNativeSelect<TestItem> select) {
+		TestUI ui = new TestUI();
+		ui.setContent(select);
+		ui.attachToSession();
+	}
+
+	private static ExtendedNativeSelect<TestItem> createSelect(TestItem... items) {
+		ExtendedNativeSelect<TestItem> select = new ExtendedNativeSelect<>();
+		select.setItemCaptionGenerator(TestItem::getName);
+		select.setItems(items);
+		return select;
 	}
 }
@@ -0,0 +1,268 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect;
+
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.Query;
+import com.vaadin.shared.Registration;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SortedCatalogTest {
+	private static final Locale SWEDISH = new Locale("sv");
+
+	@Test
+	public void sortsByCaptionPerLocale() {
+		SortedCatalog<TestItem> catalog = createCatalog(
+				new TestItem(1, "Zebra"), new TestItem(2, "\u00c4pfel"), new TestItem(3, "Apfel"));
+
+		assertEquals(Arrays.asList("Apfel", "\u00c4pfel", "Zebra"), fetchNames(catalog, Locale.GERMAN));
+		assertEquals(Arrays.asList("Apfel", "Zebra", "\u00c4pfel"), fetchNames(catalog, SWEDISH));
+	}
+
+	@Test
+	public void sharesTheViewPerLocale() {
+		SortedCatalog<TestItem> catalog = createCatalog(new TestItem(1, "A"));
+
+		assertSame(catalog.getDataProvider(Locale.GERMAN), catalog.getDataProvider(Locale.GERMAN));
+	}
+
+	@Test
+	public void keepsTheInsertionOrderOfEqualCaptions() {
+		TestItem first = new TestItem(1, "Same");
+		TestItem second = new TestItem(2, "Same");
+		TestItem third = new TestItem(3, "Same");
+		SortedCatalog<TestItem> catalog = createCatalog(first, second, new TestItem(4, "Other"));
+		catalog.getDataProvider(Locale.GERMAN);
+
+		apply(catalog, third, SortedCatalog.Change.ADD);
+		assertEquals(Arrays.asList(4, 1, 2, 3), fetchIds(catalog, Locale.GERMAN));
+
+		apply(catalog, second, SortedCatalog.Change.REMOVE);
+		assertEquals(Arrays.asList(4, 1, 3), fetchIds(catalog, Locale.GERMAN));
+	}
+
+	@Test
+	public void appliesAllChangesOfABatch() {
+		SortedCatalog<TestItem> catalog = createCatalog(
+				new TestItem(1, "B"), new TestItem(2, "D"), new TestItem(3, "F"));
+		catalog.getDataProvider(Locale.GERMAN);
+
+		Map<TestItem, SortedCatalog.Change> changes = new LinkedHashMap<>();
+		changes.put(new TestItem(4, "E"), SortedCatalog.Change.ADD);
+		changes.put(new TestItem(5, "A"), SortedCatalog.Change.ADD);
+		changes.put(new TestItem(2, "D"), SortedCatalog.Change.REMOVE);
+		changes.put(new TestItem(3, "C"), SortedCatalog.Change.REFRESH);
+
+		assertEquals(SortedCatalog.Result.RESTRUCTURED, catalog.applyChanges(changes));
+		assertEquals(Arrays.asList("A", "B", "C", "E"), fetchNames(catalog, Locale.GERMAN));
+	}
+
+	@Test
+	public void ignoresChangesOfUnknownItems() {
+		SortedCatalog<TestItem> catalog = createCatalog(new TestItem(1, "A"));
+
+		assertEquals(SortedCatalog.Result.UNCHANGED, apply(catalog, new TestItem(2, "B"), SortedCatalog.Change.REMOVE));
+		assertEquals(SortedCatalog.Result.UNCHANGED, apply(catalog, new TestItem(2, "B"), SortedCatalog.Change.REFRESH));
+		assertEquals(Collections.singletonList("A"), fetchNames(catalog, Locale.GERMAN));
+	}
+
+	@Test
+	public void reportsRefreshesWhichKeepTheOrder() {
+		SortedCatalog<TestItem> catalog = createCatalog(new TestItem(1, "B"), new TestItem(2, "D"));
+		catalog.getDataProvider(Locale.GERMAN);
+
+		assertEquals(SortedCatalog.Result.REFRESHED, apply(catalog, new TestItem(1, "C"), SortedCatalog.Change.REFRESH));
+		assertEquals(SortedCatalog.Result.REFRESHED, apply(catalog, new TestItem(1, "A"), SortedCatalog.Change.ADD));
+	}
+
+	@Test
+	public void reportsRefreshesWhichChangeTheOrder() {
+		SortedCatalog<TestItem> catalog = createCatalog(new TestItem(1, "B"), new TestItem(2, "D"));
+		catalog.getDataProvider(Locale.GERMAN);
+
+		assertEquals(SortedCatalog.Result.RESTRUCTURED, apply(catalog, new TestItem(1, "E"), SortedCatalog.Change.REFRESH));
+		assertEquals(Arrays.asList("D", "E"), fetchNames(catalog, Locale.GERMAN));
+	}
+
+	@Test
+	public void reportsAdditionsAndRemovals() {
+		SortedCatalog<TestItem> catalog = createCatalog(new TestItem(1, "B"), new TestItem(2, "D"));
+
+		// The structure changes even without any view.
+		assertEquals(SortedCatalog.Result.RESTRUCTURED, apply(catalog, new TestItem(3, "Z"), SortedCatalog.Change.ADD));
+		assertEquals(SortedCatalog.Result.RESTRUCTURED, apply(catalog, new TestItem(1, "B"), SortedCatalog.Change.REMOVE));
+	}
+
+	@Test
+	public void returnsTheCurrentInstance() {
+		TestItem original = new TestItem(1, "A");
+		SortedCatalog<TestItem> catalog = createCatalog(original);
+		assertSame(original, catalog.getCurrentItem(new TestItem(1, "Stale")));
+
+		TestItem refreshed = new TestItem(1, "B");
+		apply(catalog, refreshed, SortedCatalog.Change.REFRESH);
+		assertSame(refreshed, catalog.getCurrentItem(original));
+
+		TestItem unknown = new TestItem(2, "C");
+		assertSame(unknown, catalog.getCurrentItem(unknown));
+	}
+
+	@Test
+	public void replacesTheInstanceOnRefresh() {
+		SortedCatalog<TestItem> catalog = createCatalog(new TestItem(1, "B"), new TestItem(2, "C"));
+		catalog.getDataProvider(Locale.GERMAN);
+
+		TestItem refreshed = new TestItem(2, "A");
+		apply(catalog, refreshed, SortedCatalog.Change.REFRESH);
+
+		assertSame(refreshed, fetch(catalog, Locale.GERMAN).get(0));
+		// A view which is created after the refresh has to use the new instance as well.
+		assertSame(refreshed, fetch(catalog, SWEDISH).get(0));
+	}
+
+	@Test
+	public void refreshesAnExistingItemOnAdd() {
+		SortedCatalog<TestItem> catalog = createCatalog(new TestItem(1, "B"), new TestItem(2, "C"));
+		catalog.getDataProvider(Locale.GERMAN);
+
+		TestItem added = new TestItem(2, "A");
+		apply(catalog, added, SortedCatalog.Change.ADD);
+
+		assertEquals(2, fetch(catalog, Locale.GERMAN).size());
+		assertSame(added, fetch(catalog, Locale.GERMAN).get(0));
+		assertSame(added, fetch(catalog, SWEDISH).get(0));
+	}
+
+	@Test
+	public void servesRangesOfTheView() {
+		SortedCatalog<TestItem> catalog = createCatalog(
+				new TestItem(1, "A"), new TestItem(2, "B"), new TestItem(3, "C"));
+		DataProvider<TestItem, Void> view = catalog.getDataProvider(Locale.GERMAN);
+
+		assertEquals(3, view.size(new Query<>()));
+		assertEquals(Arrays.asList("B", "C"), view.fetch(new Query<>(1, 5, Collections.emptyList(), null, null))
+				.map(TestItem::getName)
+				.collect(Collectors.toList()));
+	}
+
+	@Test
+	public void registersListenersConcurrently() throws Exception {
+		DataProvider<TestItem, Void> view = createCatalog(new TestItem(1, "A")).getDataProvider(Locale.GERMAN);
+		AtomicInteger notified = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		try {
+			List<Future<Registration>> futures = new ArrayList<>();
+			for (int i = 0; i < 800; i++) {
+				boolean removed = i % 2 == 0;
+				futures.add(executor.submit(() -> {
+					Registration registration = view.addDataProviderListener(event -> notified.incrementAndGet());
+					if (removed)
+						registration.remove();
+					return registration;
+				}));
+			}
+			for (Future<Registration> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+
+		view.refreshAll();
+		assertEquals(400, notified.get());
+	}
+
+	@Test
+	public void resolvesARegisteredCatalogOnDeserialization() throws Exception {
+		SortedCatalog<TestItem> catalog = new SortedCatalog<>("resolve", Arrays.asList(new TestItem(1, "A")),
+				TestItem::getName);
+		ExtendedNativeSelect<TestItem> select = new ExtendedNativeSelect<>();
+		select.setCatalog(catalog);
+
+		ExtendedNativeSelect<TestItem> deserialized = serialize(select);
+
+		assertSame(catalog, deserialized.getCatalog());
+		assertSame(select.getDataProvider(), deserialized.getDataProvider());
+	}
+
+	@Test
+	public void copiesACatalogWithoutKeyOnDeserialization() throws Exception {
+		SortedCatalog<TestItem> catalog = createCatalog(new TestItem(1, "B"), new TestItem(2, "A"));
+		ExtendedNativeSelect<TestItem> select = new ExtendedNativeSelect<>();
+		select.setCatalog(catalog);
+
+		ExtendedNativeSelect<TestItem> deserialized = serialize(select);
+
+		assertNotSame(catalog, deserialized.getCatalog());
+		assertSame(deserialized.getCatalog().getDataProvider(Locale.getDefault()), deserialized.getDataProvider());
+		assertEquals(Arrays.asList("A", "B"), fetchNames(deserialized.getCatalog(), Locale.GERMAN));
+	}
+
+	@Test
+	public void resolvesTheLatestCatalogOfAKey() throws Exception {
+		ExtendedNativeSelect<TestItem> select = new ExtendedNativeSelect<>();
+		select.setCatalog(new SortedCatalog<>("latest", Arrays.asList(new TestItem(1, "A")), TestItem::getName));
+		// E.g. the catalog is created again after a restart of the application.
+		SortedCatalog<TestItem> latest = new SortedCatalog<>("latest", Arrays.asList(new TestItem(1, "B")),
+				TestItem::getName);
+
+		assertSame(latest, serialize(select).getCatalog());
+	}
+
+	private static SortedCatalog<TestItem> createCatalog(TestItem... items) {
+		return new SortedCatalog<>(Arrays.asList(items), TestItem::getName);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T serialize(T object) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	private static SortedCatalog.Result apply(SortedCatalog<TestItem> catalog, TestItem item, SortedCatalog.Change change) {
+		return catalog.applyChanges(Collections.singletonMap(item, change));
+	}
+
+	private static List<TestItem> fetch(SortedCatalog<TestItem> catalog, Locale locale) {
+		return catalog.getDataProvider(locale).fetch(new Query<>()).collect(Collectors.toList());
+	}
+
+	private static List<String> fetchNames(SortedCatalog<TestItem> catalog, Locale locale) {
+		List<String> names = new ArrayList<>();
+		for (TestItem item : fetch(catalog, locale))
+			names.add(item.getName());
+		return names;
+	}
+
+	private static List<Integer> fetchIds(SortedCatalog<TestItem> catalog, Locale locale) {
+		List<Integer> ids = new ArrayList<>();
+		for (TestItem item : fetch(catalog, locale))
+			ids.add(item.getId());
+		return ids;
+	}
+}
@@ -0,0 +1,40 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect;
+
+import java.io.Serializable;
+
+/**
+ * An item for the tests, which is identified by its ID only. Two instances
+ * with the same ID but a different name represent a refreshed item.
+ */
+class TestItem implements Serializable {
+	private final int id;
+	private final String name;
+
+	TestItem(int id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	int getId() {
+		return id;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof TestItem && ((TestItem) o).id == id;
+	}
+
+	@Override
+	public int hashCode() {
+		return id;
+	}
+
+	@Override
+	public String toString() {
+		return id + ":" + name;
+	}
+}
@@ -0,0 +1,46 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * A UI for the tests, which runs every access immediately on the calling
+ * thread. It can be attached to a session, which is always considered to be
+ * locked.
+ */
+class TestUI extends UI {
+
+	@Override
+	protected void init(VaadinRequest request) {
+	}
+
+	@Override
+	public Future<Void> access(Runnable runnable) {
+		runnable.run();
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * Will attach this UI to a new session without a service.
+	 */
+	void attachToSession() {
+		setSession(new VaadinSession(null) {
+			private int connectorCount;
+
+			@Override
+			public boolean hasLock() {
+				return true;
+			}
+
+			@Override
+			public String createConnectorId(ClientConnector connector) {
+				return String.valueOf(connectorCount++);
+			}
+		});
+	}
+}
@@ -0,0 +1,277 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect.demo.loadtest;
+
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.data.DataCommunicatorConstants;
+import com.vaadin.shared.data.DataRequestRpc;
+import com.vaadin.shared.data.selection.SelectionServerRpc;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates a single browser window which talks to the {@link LoadTestUI}
+ * over the UIDL protocol. Every cycle will attach a new UI, open each
+ * {@link de.aditosoftware.vaadin.addon.extendednativeselect.ExtendedNativeSelect}
+ * (which requests its options), select a value in each select, refresh all
+ * data providers (which requests the options again) and detach the UI again.
+ */
+class LoadTestClient implements Runnable {
+  // Statics.
+  /**
+   * The UI is always the first connector which is registered.
+   */
+  private static final String UI_CONNECTOR_ID = "0";
+  private static final String SET_DATA_METHOD = "setData";
+  private static final String UIDL_PREFIX = "for(;;);";
+  private static final AtomicInteger WINDOW_COUNTER = new AtomicInteger();
+
+  private final LoadTestRunner runner;
+  private final LoadTestSession session;
+  private final String windowName = "loadtest-" + WINDOW_COUNTER.incrementAndGet();
+
+  // Current UI.
+  private int uiId;
+  private String csrfToken;
+  private int syncId;
+  private int clientId;
+  private final List<String> selectConnectorIds = new ArrayList<>();
+  private final Map<String, String> selectsByCommunicator = new HashMap<>();
+  private final Map<String, String> communicatorsBySelect = new HashMap<>();
+  private final Map<String, List<String>> keysBySelect = new HashMap<>();
+
+  LoadTestClient (LoadTestRunner runner, LoadTestSession session) {
+    this.runner = runner;
+    this.session = session;
+  }
+
+  @Override
+  public void run () {
+    for (int cycle = 0; cycle < runner.getCycles(); cycle++) {
+      try {
+        attach();
+        open("open");
+        select();
+        refresh();
+        detach();
+      } catch (Exception e) {
+        runner.recordError(e);
+      }
+    }
+  }
+
+  /**
+   * Will send the init request, which creates a new {@link LoadTestUI}. The
+   * connector IDs of the selects are read from the initial state.
+   */
+  private void attach () throws IOException {
+    long start = System.nanoTime();
+    String response = session.post(getInitUrl(), "application/x-www-form-urlencoded", "");
+    runner.recordLatency("attach", System.nanoTime() - start);
+
+    JsonObject json = Json.parse(response);
+    JsonObject uidl = Json.parse(json.getString("uidl"));
+
+    uiId = (int) json.getNumber("v-uiId");
+    csrfToken = uidl.getString(ApplicationConstants.UIDL_SECURITY_TOKEN_ID);
+    syncId = (int) uidl.getNumber(ApplicationConstants.SERVER_SYNC_ID);
+    clientId = 0;
+
+    selectConnectorIds.clear();
+    selectsByCommunicator.clear();
+    communicatorsBySelect.clear();
+    keysBySelect.clear();
+
+    JsonObject state = uidl.getObject("state");
+    JsonObject hierarchy = uidl.getObject("hierarchy");
+    for (String connectorId : state.keys()) {
+      JsonObject connectorState = state.getObject(connectorId);
+      if (connectorState.hasKey("id")
+          && connectorState.getString("id").startsWith(LoadTestUI.SELECT_ID_PREFIX)) {
+        selectConnectorIds.add(connectorId);
+
+        // The DataCommunicator is the only extension of the select, so it is
+        // the only child in the hierarchy.
+        if (hierarchy.hasKey(connectorId) && hierarchy.getArray(connectorId).length() > 0) {
+          String communicatorId = hierarchy.getArray(connectorId).getString(0);
+          selectsByCommunicator.put(communicatorId, connectorId);
+          communicatorsBySelect.put(connectorId, communicatorId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Will request all options of each select, like the client does when a
+   * select is focused or after the data has been reset. The keys of the
+   * pushed options are used for the selections afterwards.
+   *
+   * @param operation The name of the operation for the statistics.
+   */
+  private void open (String operation) throws IOException {
+    for (String connectorId : selectConnectorIds) {
+      String communicatorId = communicatorsBySelect.get(connectorId);
+      if (communicatorId == null)
+        continue;
+
+      JsonArray parameters = Json.createArray();
+      parameters.set(0, 0);
+      parameters.set(1, runner.getItems());
+      parameters.set(2, 0);
+      parameters.set(3, 0);
+
+      readKeys(sendRpc(operation, communicatorId, DataRequestRpc.class.getName(),
+          "requestRows", parameters));
+    }
+  }
+
+  /**
+   * Will select a random item in each select. Every selection is sent in its
+   * own request, like a user would do.
+   */
+  private void select () throws IOException {
+    for (String connectorId : selectConnectorIds) {
+      List<String> keys = keysBySelect.get(connectorId);
+      if (keys == null || keys.isEmpty())
+        throw new IOException("No options have been pushed for select " + connectorId);
+
+      String key = keys.get(ThreadLocalRandom.current().nextInt(keys.size()));
+
+      JsonArray parameters = Json.createArray();
+      parameters.set(0, key);
+
+      sendRpc("select", connectorId, SelectionServerRpc.class.getName(), "select", parameters);
+    }
+  }
+
+  /**
+   * Will refresh all data providers of the form. As the options of all
+   * selects have been requested before, they are requested again, like the
+   * client does after a reset.
+   */
+  private void refresh () throws IOException {
+    sendRpc("refresh", UI_CONNECTOR_ID, LoadTestServerRpc.class.getName(), "refresh",
+        Json.createArray());
+    open("reopen");
+  }
+
+  /**
+   * Will read the keys of the options from the "setData" invocations of the
+   * given UIDL message.
+   *
+   * @param message The UIDL message.
+   */
+  private void readKeys (JsonObject message) {
+    if (!message.hasKey(ApplicationConstants.RPC_INVOCATIONS))
+      return;
+
+    JsonArray invocations = message.getArray(ApplicationConstants.RPC_INVOCATIONS);
+    for (int i = 0; i < invocations.length(); i++) {
+      JsonArray invocation = invocations.getArray(i);
+      String selectId = selectsByCommunicator.get(invocation.getString(0));
+
+      if (selectId == null || !SET_DATA_METHOD.equals(invocation.getString(2)))
+        continue;
+
+      List<String> keys = new ArrayList<>();
+      JsonArray rows = invocation.getArray(3).getArray(1);
+      for (int j = 0; j < rows.length(); j++) {
+        JsonObject row = rows.getObject(j);
+        if (row.hasKey(DataCommunicatorConstants.KEY))
+          keys.add(row.getString(DataCommunicatorConstants.KEY));
+      }
+
+      keysBySelect.put(selectId, keys);
+    }
+  }
+
+  /**
+   * Will detach the form and close the UI.
+   */
+  private void detach () throws IOException {
+    sendRpc("detach", UI_CONNECTOR_ID, LoadTestServerRpc.class.getName(), "detach",
+        Json.createArray());
+  }
+
+  /**
+   * Will send a single RPC invocation as UIDL request and record the latency
+   * for the given operation.
+   *
+   * @param operation     The name of the operation for the statistics.
+   * @param connectorId   The ID of the connector to invoke the RPC on.
+   * @param interfaceName The name of the RPC interface.
+   * @param method        The name of the RPC method.
+   * @param parameters    The parameters of the RPC method.
+   * @return The UIDL message of the response.
+   */
+  private JsonObject sendRpc (String operation, String connectorId, String interfaceName, String method,
+                        JsonArray parameters) throws IOException {
+    JsonArray invocation = Json.createArray();
+    invocation.set(0, connectorId);
+    invocation.set(1, interfaceName);
+    invocation.set(2, method);
+    invocation.set(3, parameters);
+
+    JsonArray rpc = Json.createArray();
+    rpc.set(0, invocation);
+
+    JsonObject payload = Json.createObject();
+    payload.put(ApplicationConstants.CSRF_TOKEN, csrfToken);
+    payload.put(ApplicationConstants.RPC_INVOCATIONS, rpc);
+    payload.put(ApplicationConstants.SERVER_SYNC_ID, syncId);
+    payload.put(ApplicationConstants.CLIENT_TO_SERVER_ID, clientId++);
+
+    long start = System.nanoTime();
+    String response = session.post(getUidlUrl(), "application/json; charset=UTF-8", payload.toJson());
+    runner.recordLatency(operation, System.nanoTime() - start);
+
+    if (!response.startsWith(UIDL_PREFIX))
+      throw new IOException("Unexpected UIDL response: " + response);
+
+    JsonArray messages = Json.instance().parse(response.substring(UIDL_PREFIX.length()));
+    JsonObject message = messages.getObject(0);
+
+    if (message.hasKey("appError"))
+      throw new IOException("Application error: " + message.get("appError").toJson());
+
+    JsonValue newSyncId = message.get(ApplicationConstants.SERVER_SYNC_ID);
+    if (newSyncId != null)
+      syncId = (int) newSyncId.asNumber();
+
+    return message;
+  }
+
+  private String getInitUrl () {
+    long now = System.currentTimeMillis();
+
+    return runner.getUiUrl()
+        + "?v-browserDetails=1&theme=demo&v-appId=loadtest"
+        + "&v-sh=900&v-sw=1440&v-cw=1440&v-ch=900&v-vw=1440&v-vh=900"
+        + "&v-curdate=" + now + "&v-tzo=0&v-dstd=0&v-rtzo=0&v-dston=false"
+        + "&v-loc=" + encode(runner.getUiUrl()) + "&v-wn=" + windowName
+        + "&selects=" + runner.getSelects() + "&items=" + runner.getItems();
+  }
+
+  private String getUidlUrl () {
+    return runner.getUiUrl() + "UIDL/?v-uiId=" + uiId;
+  }
+
+  private static String encode (String value) {
+    try {
+      return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,229 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect.demo.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a load test against a running demo application (e.g. started with
+ * "mvn jetty:run"). This simulates many concurrent browser windows, which
+ * talk to the {@link LoadTestUI} over the UIDL protocol. At the end, the
+ * throughput, the latencies, the heap per session and the session lock
+ * contention are reported.
+ * <p>
+ * The test is configured by the following system properties:
+ * <ul>
+ * <li>loadtest.url: The root URL of the demo application (default: http://localhost:8080/).</li>
+ * <li>loadtest.users: The amount of simulated sessions (default: 100).</li>
+ * <li>loadtest.uisPerSession: The amount of concurrent UIs per session (default: 2). The session lock
+ * is only contended with at least 2 UIs per session.</li>
+ * <li>loadtest.cycles: The amount of attach, open, select, refresh and detach cycles per UI (default: 10).</li>
+ * <li>loadtest.selects: The amount of selects per form (default: 20).</li>
+ * <li>loadtest.items: The amount of items per select (default: 100).</li>
+ * <li>loadtest.sampleInterval: The interval of the heap samples in seconds (default: 5).</li>
+ * </ul>
+ */
+public class LoadTestRunner {
+  private final String rootUrl;
+  private final int users;
+  private final int uisPerSession;
+  private final int cycles;
+  private final int selects;
+  private final int items;
+  private final int sampleInterval;
+
+  // Recorded values.
+  private final Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>();
+  private final AtomicInteger errors = new AtomicInteger();
+  private final AtomicLong peakHeapPerSession = new AtomicLong();
+
+  public LoadTestRunner (String rootUrl, int users, int uisPerSession, int cycles, int selects,
+                         int items, int sampleInterval) {
+    this.rootUrl = rootUrl.endsWith("/") ? rootUrl : rootUrl + "/";
+    this.users = users;
+    this.uisPerSession = uisPerSession;
+    this.cycles = cycles;
+    this.selects = selects;
+    this.items = items;
+    this.sampleInterval = sampleInterval;
+  }
+
+  public static void main (String[] args) throws Exception {
+    new LoadTestRunner(
+        System.getProperty("loadtest.url", "http://localhost:8080/"),
+        Integer.getInteger("loadtest.users", 100),
+        Integer.getInteger("loadtest.uisPerSession", 2),
+        Integer.getInteger("loadtest.cycles", 10),
+        Integer.getInteger("loadtest.selects", 20),
+        Integer.getInteger("loadtest.items", 100),
+        Integer.getInteger("loadtest.sampleInterval", 5)
+    ).run();
+  }
+
+  /**
+   * Will run the load test and print the report to the standard output.
+   */
+  public void run () throws Exception {
+    LoadTestSession statisticsSession = new LoadTestSession();
+    Map<String, Long> baseline = fetchStatistics(statisticsSession, "?gc&reset");
+    long baselineHeap = baseline.get("usedHeap");
+
+    // Sample the heap while the test is running.
+    ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+    sampler.scheduleAtFixedRate(() -> sampleHeap(statisticsSession, baselineHeap),
+        sampleInterval, sampleInterval, TimeUnit.SECONDS);
+
+    ExecutorService executor = Executors.newFixedThreadPool(users * uisPerSession);
+    long start = System.nanoTime();
+
+    for (int i = 0; i < users; i++) {
+      LoadTestSession session = new LoadTestSession();
+
+      // Request the bootstrap page first, so all UIs of this session share
+      // the same session cookie.
+      try {
+        session.get(getUiUrl());
+      } catch (IOException e) {
+        recordError(e);
+        continue;
+      }
+
+      for (int j = 0; j < uisPerSession; j++)
+        executor.execute(new LoadTestClient(this, session));
+    }
+
+    executor.shutdown();
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    long duration = System.nanoTime() - start;
+
+    sampler.shutdownNow();
+    Map<String, Long> statistics = fetchStatistics(statisticsSession, "");
+
+    printReport(duration, statistics);
+  }
+
+  /**
+   * Will record the latency of a single request.
+   *
+   * @param operation The operation which has been executed.
+   * @param nanos     The latency in nanoseconds.
+   */
+  void recordLatency (String operation, long nanos) {
+    latencies.computeIfAbsent(operation, key -> new ConcurrentLinkedQueue<>()).add(nanos);
+  }
+
+  /**
+   * Will record a failed cycle.
+   *
+   * @param e The cause of the failure.
+   */
+  void recordError (Exception e) {
+    if (errors.incrementAndGet() <= 10)
+      System.err.println("Load test error: " + e);
+  }
+
+  String getUiUrl () {
+    return rootUrl + "load/";
+  }
+
+  int getCycles () {
+    return cycles;
+  }
+
+  int getSelects () {
+    return selects;
+  }
+
+  int getItems () {
+    return items;
+  }
+
+  /**
+   * Will sample the used heap of the server and update the peak heap per
+   * session.
+   */
+  private void sampleHeap (LoadTestSession statisticsSession, long baselineHeap) {
+    try {
+      Map<String, Long> statistics = fetchStatistics(statisticsSession, "?gc");
+      long sessions = statistics.get("sessions");
+
+      if (sessions > 0) {
+        long heapPerSession = (statistics.get("usedHeap") - baselineHeap) / sessions;
+        peakHeapPerSession.accumulateAndGet(heapPerSession, Math::max);
+      }
+    } catch (IOException e) {
+      recordError(e);
+    }
+  }
+
+  /**
+   * Will fetch the values of the {@link LoadTestStatisticsServlet}.
+   *
+   * @param session The session to use for the request.
+   * @param query   The query string to append to the URL.
+   * @return The values by their name.
+   */
+  private Map<String, Long> fetchStatistics (LoadTestSession session, String query) throws IOException {
+    Map<String, Long> values = new HashMap<>();
+
+    for (String line : session.get(rootUrl + "load-stats" + query).split("\n")) {
+      String[] pair = line.trim().split("=", 2);
+      if (pair.length == 2)
+        values.put(pair[0], Long.parseLong(pair[1]));
+    }
+
+    return values;
+  }
+
+  private void printReport (long duration, Map<String, Long> statistics) {
+    List<Long> all = new ArrayList<>();
+    latencies.values().forEach(all::addAll);
+
+    double seconds = duration / 1e9;
+    long lockSamples = statistics.get("lockSamples");
+
+    System.out.println("=== ExtendedNativeSelect load test ===");
+    System.out.printf("Sessions: %d, UIs per session: %d, cycles: %d, selects: %d, items: %d%n",
+        users, uisPerSession, cycles, selects, items);
+    System.out.println("Production mode: " + (statistics.get("productionMode") == 1
+        ? "yes" : "no (the debug mode adds overhead, so the numbers can not be used for sizing)"));
+    System.out.printf("Duration: %.1f s, requests: %d, failed cycles: %d%n",
+        seconds, all.size(), errors.get());
+    System.out.printf("Throughput: %.1f requests/s%n", all.size() / seconds);
+    printLatency("total", all);
+    new TreeMap<>(latencies).forEach((operation, values) -> printLatency(operation, new ArrayList<>(values)));
+    System.out.printf("Heap per session (peak): %d KiB%n", peakHeapPerSession.get() / 1024);
+    System.out.printf("Session lock: %d samples, %.2f waiting threads on average, %d at most%n",
+        lockSamples,
+        lockSamples == 0 ? 0d : (double) statistics.get("lockWaitingTotal") / lockSamples,
+        statistics.get("lockWaitingMax"));
+    if (uisPerSession < 2)
+      System.out.println("Warning: With a single UI per session, the requests of a session never compete for its lock.");
+  }
+
+  private static void printLatency (String operation, List<Long> values) {
+    if (values.isEmpty())
+      return;
+
+    values.sort(null);
+    System.out.printf("Latency %-8s p50: %.2f ms, p99: %.2f ms%n", operation,
+        percentile(values, 0.50) / 1e6, percentile(values, 0.99) / 1e6);
+  }
+
+  private static long percentile (List<Long> sortedValues, double percentile) {
+    int index = (int) Math.ceil(percentile * sortedValues.size()) - 1;
+    return sortedValues.get(Math.max(0, Math.min(index, sortedValues.size() - 1)));
+  }
+}
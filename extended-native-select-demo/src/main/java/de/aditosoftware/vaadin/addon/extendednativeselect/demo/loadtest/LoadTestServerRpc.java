@@ -0,0 +1,20 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect.demo.loadtest;
+
+import com.vaadin.shared.communication.ServerRpc;
+
+/**
+ * RPC interface which is registered on the {@link LoadTestUI}. This allows
+ * the {@link LoadTestRunner} to trigger the refresh and detach cycles over
+ * the regular UIDL protocol without the need of a client-side connector.
+ */
+public interface LoadTestServerRpc extends ServerRpc {
+  /**
+   * Will refresh the items of all data providers used by the form.
+   */
+  void refresh ();
+
+  /**
+   * Will detach the form and close the UI.
+   */
+  void detach ();
+}
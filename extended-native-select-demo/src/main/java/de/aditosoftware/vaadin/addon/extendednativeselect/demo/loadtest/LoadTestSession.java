@@ -0,0 +1,125 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect.demo.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Represents a simulated browser session. This holds the cookies of the
+ * session and allows to send plain HTTP requests with them. All
+ * {@link LoadTestClient}s of one session share the same server-side
+ * VaadinSession and therefore compete for the same session lock.
+ */
+class LoadTestSession {
+  private final Map<String, String> cookies = new LinkedHashMap<>();
+
+  /**
+   * Will send a GET request to the given URL.
+   *
+   * @param url The URL to request.
+   * @return The body of the response.
+   * @throws IOException If the request failed.
+   */
+  String get (String url) throws IOException {
+    return send(url, null, null);
+  }
+
+  /**
+   * Will send a POST request with the given body to the given URL.
+   *
+   * @param url         The URL to request.
+   * @param contentType The content type of the body.
+   * @param body        The body of the request.
+   * @return The body of the response.
+   * @throws IOException If the request failed.
+   */
+  String post (String url, String contentType, String body) throws IOException {
+    return send(url, contentType, body);
+  }
+
+  /**
+   * Will send the actual request. If no content type is given, a GET request
+   * will be sent, otherwise a POST request.
+   */
+  private String send (String url, String contentType, String body) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+    try {
+      connection.setInstanceFollowRedirects(false);
+
+      String cookieHeader = getCookieHeader();
+      if (!cookieHeader.isEmpty())
+        connection.setRequestProperty("Cookie", cookieHeader);
+
+      if (contentType != null) {
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", contentType);
+
+        try (OutputStream out = connection.getOutputStream()) {
+          out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+
+      int status = connection.getResponseCode();
+      updateCookies(connection.getHeaderFields().get("Set-Cookie"));
+
+      if (status != HttpURLConnection.HTTP_OK)
+        throw new IOException("Unexpected HTTP status " + status + " for " + url);
+
+      try (InputStream in = connection.getInputStream()) {
+        return readFully(in);
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Will build the value of the "Cookie" header from the current cookies.
+   *
+   * @return The header value. May be empty, but never null.
+   */
+  private synchronized String getCookieHeader () {
+    return cookies.entrySet().stream()
+        .map(entry -> entry.getKey() + "=" + entry.getValue())
+        .collect(Collectors.joining("; "));
+  }
+
+  /**
+   * Will store the cookies of the given "Set-Cookie" header values.
+   *
+   * @param headers The header values. May be null.
+   */
+  private synchronized void updateCookies (List<String> headers) {
+    if (headers == null)
+      return;
+
+    for (String header : headers) {
+      String pair = header.split(";", 2)[0];
+      int separator = pair.indexOf('=');
+
+      if (separator > 0)
+        cookies.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+    }
+  }
+
+  private static String readFully (InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+
+    while ((read = in.read(buffer)) != -1)
+      out.write(buffer, 0, read);
+
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,58 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect.demo.loadtest;
+
+import com.vaadin.server.VaadinSession;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects the server-side statistics of a load test run. The values are
+ * exposed by the {@link LoadTestStatisticsServlet}.
+ */
+final class LoadTestStatistics {
+  // Deployment of the load test servlet.
+  static volatile boolean productionMode;
+
+  // Session and UI counters.
+  static final AtomicInteger sessions = new AtomicInteger();
+  static final AtomicInteger uis = new AtomicInteger();
+
+  // Session lock contention.
+  static final AtomicLong lockSamples = new AtomicLong();
+  static final AtomicLong lockWaitingTotal = new AtomicLong();
+  static final AtomicInteger lockWaitingMax = new AtomicInteger();
+
+  private LoadTestStatistics () {
+  }
+
+  /**
+   * Will sample the number of threads which are currently waiting for the
+   * lock of the given session. This has to be called while the lock is held.
+   *
+   * @param session The session to sample.
+   */
+  static void sampleLock (VaadinSession session) {
+    Lock lock = session.getLockInstance();
+
+    if (!(lock instanceof ReentrantLock))
+      return;
+
+    int waiting = ((ReentrantLock) lock).getQueueLength();
+
+    lockSamples.incrementAndGet();
+    lockWaitingTotal.addAndGet(waiting);
+    lockWaitingMax.accumulateAndGet(waiting, Math::max);
+  }
+
+  /**
+   * Will reset the lock contention values. The session and UI counters are
+   * not reset, as they reflect the current state of the server.
+   */
+  static void reset () {
+    lockSamples.set(0);
+    lockWaitingTotal.set(0);
+    lockWaitingMax.set(0);
+  }
+}
@@ -0,0 +1,40 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect.demo.loadtest;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Exposes the {@link LoadTestStatistics} as plain "key=value" lines. If the
+ * parameter "gc" is given, a garbage collection will be requested before the
+ * heap is measured. If the parameter "reset" is given, the lock contention
+ * values will be reset after they have been written.
+ */
+@WebServlet(value = "/load-stats")
+@SuppressWarnings("serial")
+public class LoadTestStatisticsServlet extends HttpServlet {
+  @Override
+  protected void doGet (HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    if (req.getParameter("gc") != null)
+      System.gc();
+
+    Runtime runtime = Runtime.getRuntime();
+
+    resp.setContentType("text/plain; charset=UTF-8");
+    PrintWriter writer = resp.getWriter();
+    writer.println("productionMode=" + (LoadTestStatistics.productionMode ? 1 : 0));
+    writer.println("usedHeap=" + (runtime.totalMemory() - runtime.freeMemory()));
+    writer.println("sessions=" + LoadTestStatistics.sessions.get());
+    writer.println("uis=" + LoadTestStatistics.uis.get());
+    writer.println("lockSamples=" + LoadTestStatistics.lockSamples.get());
+    writer.println("lockWaitingTotal=" + LoadTestStatistics.lockWaitingTotal.get());
+    writer.println("lockWaitingMax=" + LoadTestStatistics.lockWaitingMax.get());
+    writer.flush();
+
+    if (req.getParameter("reset") != null)
+      LoadTestStatistics.reset();
+  }
+}
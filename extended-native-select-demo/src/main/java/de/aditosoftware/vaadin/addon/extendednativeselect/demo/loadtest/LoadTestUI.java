@@ -0,0 +1,131 @@
+package de.aditosoftware.vaadin.addon.extendednativeselect.demo.loadtest;
+
+import com.vaadin.annotations.Theme;
+import com.vaadin.annotations.Title;
+import com.vaadin.annotations.VaadinServletConfiguration;
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.ui.FormLayout;
+import com.vaadin.ui.UI;
+import de.aditosoftware.vaadin.addon.extendednativeselect.ExtendedNativeSelect;
+
+import javax.servlet.annotation.WebServlet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * UI which is used by the {@link LoadTestRunner}. This will create a form
+ * with a configurable amount of {@link ExtendedNativeSelect}s, each holding
+ * a configurable amount of items. The amounts are read from the request
+ * parameters "selects" and "items".
+ */
+@Theme("demo")
+@Title("Extended Native Select Load Test")
+@SuppressWarnings("serial")
+public class LoadTestUI extends UI {
+  // Statics.
+  static final String SELECT_ID_PREFIX = "select-";
+  private static final int DEFAULT_SELECTS = 20;
+  private static final int DEFAULT_ITEMS = 100;
+
+  /**
+   * The servlet runs in production mode, as the debug mode adds server-side
+   * overhead and changes the response sizes. The theme is not compiled, but
+   * the load test only talks UIDL.
+   */
+  @WebServlet(value = "/load/*", asyncSupported = true)
+  @VaadinServletConfiguration(productionMode = true, ui = LoadTestUI.class)
+  public static class Servlet extends VaadinServlet {
+    @Override
+    protected void servletInitialized () {
+      LoadTestStatistics.productionMode = getService().getDeploymentConfiguration().isProductionMode();
+      getService().addSessionInitListener(event -> LoadTestStatistics.sessions.incrementAndGet());
+      getService().addSessionDestroyListener(event -> LoadTestStatistics.sessions.decrementAndGet());
+    }
+  }
+
+  private final List<ListDataProvider<String>> dataProviders = new ArrayList<>();
+  private FormLayout form;
+
+  @Override
+  protected void init (VaadinRequest request) {
+    LoadTestStatistics.uis.incrementAndGet();
+    addDetachListener(event -> LoadTestStatistics.uis.decrementAndGet());
+
+    registerRpc(new LoadTestServerRpc() {
+      @Override
+      public void refresh () {
+        LoadTestStatistics.sampleLock(getSession());
+        dataProviders.forEach(ListDataProvider::refreshAll);
+      }
+
+      @Override
+      public void detach () {
+        LoadTestStatistics.sampleLock(getSession());
+        form.removeAllComponents();
+        close();
+      }
+    });
+
+    int selects = getIntParameter(request, "selects", DEFAULT_SELECTS);
+    int items = getIntParameter(request, "items", DEFAULT_ITEMS);
+
+    form = new FormLayout();
+    for (int i = 0; i < selects; i++)
+      form.addComponent(createSelect(i, items));
+
+    setContent(form);
+  }
+
+  /**
+   * Will create a new {@link ExtendedNativeSelect} with the given amount of
+   * items. The select will get an ID, so the {@link LoadTestRunner} is able
+   * to find its connector in the UIDL response.
+   *
+   * @param index The index of the select in the form.
+   * @param items The amount of items.
+   * @return The created select.
+   */
+  private ExtendedNativeSelect<String> createSelect (int index, int items) {
+    List<String> values = new ArrayList<>(items);
+    for (int i = 0; i < items; i++)
+      values.add("Item " + index + "-" + i);
+
+    ListDataProvider<String> dataProvider = new ListDataProvider<>(values);
+    dataProviders.add(dataProvider);
+
+    ExtendedNativeSelect<String> select = new ExtendedNativeSelect<>();
+    select.setId(SELECT_ID_PREFIX + index);
+    select.setCaption("Select " + index);
+    select.setPlaceholder("Select " + index);
+    select.setEmptySelectionAllowed(true);
+    select.setDataProvider(dataProvider);
+    select.addSelectionListener(event -> LoadTestStatistics.sampleLock(getSession()));
+
+    return select;
+  }
+
+  /**
+   * Will return the given request parameter as positive integer. If the
+   * parameter is missing or invalid, the default value will be returned.
+   *
+   * @param request      The request to read the parameter from.
+   * @param name         The name of the parameter.
+   * @param defaultValue The value to use if the parameter is not usable.
+   * @return The value of the parameter or the default value.
+   */
+  private static int getIntParameter (VaadinRequest request, String name, int defaultValue) {
+    String value = request.getParameter(name);
+
+    if (value == null)
+      return defaultValue;
+
+    try {
+      int parsed = Integer.parseInt(value);
+      return parsed > 0 ? parsed : defaultValue;
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+}